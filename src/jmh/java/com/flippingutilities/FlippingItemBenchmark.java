@@ -0,0 +1,91 @@
+package com.flippingutilities;
+
+import com.flippingutilities.model.FlippingItem;
+import com.flippingutilities.model.HistoryManager;
+import com.flippingutilities.model.OfferEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks merging the items of two accounts, which is done for every item when the account wide trade list is
+ * created. Merging two items changes them, so they are copied before every merge, which isn't measured. Merging a
+ * list of items leaves them as they are and copies their offers itself, which is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlippingItemBenchmark
+{
+	@Param({"1000", "100000", "1000000"})
+	public int offers;
+
+	@Param("8")
+	public int slots;
+
+	@Param("0.2")
+	public double marginCheckRatio;
+
+	@Param("0.5")
+	public double partialFillRatio;
+
+	private FlippingItem item1;
+	private FlippingItem item2;
+	private FlippingItem item1Copy;
+	private FlippingItem item2Copy;
+
+	@Setup(Level.Trial)
+	public void createItems()
+	{
+		item1 = createItem("account0", 0);
+		item2 = createItem("account1", 1);
+	}
+
+	@Setup(Level.Invocation)
+	public void copyItems()
+	{
+		item1Copy = item1.clone();
+		item2Copy = item2.clone();
+	}
+
+	@Benchmark
+	public FlippingItem merge()
+	{
+		return FlippingItem.merge(item1Copy, item2Copy);
+	}
+
+	@Benchmark
+	public FlippingItem mergeWithoutCopying()
+	{
+		return FlippingItem.merge(Arrays.asList(item1, item2));
+	}
+
+	private FlippingItem createItem(String account, long seed)
+	{
+		FlippingItem item = new FlippingItem(1, "item", 100, account);
+		HistoryGenerator generator = new HistoryGenerator(seed, account, slots, marginCheckRatio, partialFillRatio);
+		HistoryManager history = item.getHistory();
+		while (history.getCompressedOfferEvents().size() < offers / 2)
+		{
+			OfferEvent offer = generator.next();
+			item.updateHistory(offer);
+			item.updateLatestProperties(offer);
+		}
+		return item;
+	}
+}
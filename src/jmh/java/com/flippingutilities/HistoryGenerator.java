@@ -0,0 +1,136 @@
+package com.flippingutilities;
+
+import com.flippingutilities.model.HistoryManager;
+import com.flippingutilities.model.OfferEvent;
+import net.runelite.api.GrandExchangeOfferState;
+
+import java.time.Instant;
+import java.util.Random;
+
+/**
+ * Generates offers like the ones the plugin passes to a history, for the benchmarks. Trades are spread over the ge
+ * slots and an ongoing trade sends an offer for each partial fill, each one replacing the last in the history. It's
+ * seeded so every run gets the same offers.
+ */
+public class HistoryGenerator
+{
+	private static final Instant START = Instant.parse("2020-01-01T00:00:00Z");
+
+	private final Random random;
+	private final String account;
+	private final double marginCheckRatio;
+	private final double partialFillRatio;
+	//the offer last sent for the trade ongoing in each slot, or null if the slot is empty
+	private final OfferEvent[] slots;
+	private long seconds;
+	private int price = 1000;
+
+	/**
+	 * @param seed             seed for the offers generated
+	 * @param account          the account the offers are made by
+	 * @param slots            how many ge slots the account trades the item in
+	 * @param marginCheckRatio the share of trades that are margin checks
+	 * @param partialFillRatio the chance an ongoing trade gets another partial fill rather than completing
+	 */
+	public HistoryGenerator(long seed, String account, int slots, double marginCheckRatio, double partialFillRatio)
+	{
+		this.random = new Random(seed);
+		this.account = account;
+		this.slots = new OfferEvent[slots];
+		this.marginCheckRatio = marginCheckRatio;
+		this.partialFillRatio = partialFillRatio;
+	}
+
+	/**
+	 * Creates a history made of the offers of several accounts, like the histories of the account wide trade list.
+	 *
+	 * @param offers   roughly how many offers the history should hold once partial fills have been replaced
+	 * @param accounts how many accounts the offers are split between
+	 */
+	public static HistoryManager createHistory(int offers, int accounts, int slots, double marginCheckRatio, double partialFillRatio)
+	{
+		HistoryManager history = new HistoryManager();
+		for (int i = 0; i < accounts; i++)
+		{
+			HistoryGenerator generator = new HistoryGenerator(i, "account" + i, slots, marginCheckRatio, partialFillRatio);
+			HistoryManager accountHistory = new HistoryManager();
+			while (accountHistory.getCompressedOfferEvents().size() < offers / accounts)
+			{
+				accountHistory.updateHistory(generator.next());
+			}
+			history.mergeHistory(accountHistory);
+		}
+		return history;
+	}
+
+	/**
+	 * Moves the generator on to the given time, so the offers it generates after come after it.
+	 */
+	public void skipTo(Instant time)
+	{
+		seconds = Math.max(seconds, time.getEpochSecond() - START.getEpochSecond());
+	}
+
+	/**
+	 * @return the next offer, which is always later than the ones before it
+	 */
+	public OfferEvent next()
+	{
+		seconds += 1 + random.nextInt(60);
+		price = Math.max(10, price + random.nextInt(21) - 10);
+
+		int slot = random.nextInt(slots.length);
+		OfferEvent lastOffer = slots[slot];
+		OfferEvent offer = lastOffer == null ? startTrade(slot) : continueTrade(lastOffer);
+		slots[slot] = offer.isComplete() ? null : offer;
+		return offer;
+	}
+
+	private OfferEvent startTrade(int slot)
+	{
+		boolean buy = random.nextBoolean();
+		if (random.nextDouble() < marginCheckRatio)
+		{
+			//insta buys go for more than the usual price and insta sells for less
+			int marginCheckPrice = buy ? price + 20 : price - 20;
+			return offer(buy, 1, marginCheckPrice, slot, buy ? GrandExchangeOfferState.BOUGHT : GrandExchangeOfferState.SOLD, 1, 1);
+		}
+
+		int totalQuantity = 1 + random.nextInt(1000);
+		return fill(buy, random.nextInt(totalQuantity) + 1, totalQuantity, slot, 0);
+	}
+
+	private OfferEvent continueTrade(OfferEvent lastOffer)
+	{
+		int remaining = lastOffer.getTotalQuantityInTrade() - lastOffer.getCurrentQuantityInTrade();
+		int ticksSinceFirstOffer = lastOffer.getTicksSinceFirstOffer() + 1 + random.nextInt(100);
+		return fill(lastOffer.isBuy(), lastOffer.getCurrentQuantityInTrade() + 1 + random.nextInt(remaining),
+			lastOffer.getTotalQuantityInTrade(), lastOffer.getSlot(), ticksSinceFirstOffer);
+	}
+
+	private OfferEvent fill(boolean buy, int quantity, int totalQuantity, int slot, int ticksSinceFirstOffer)
+	{
+		GrandExchangeOfferState state;
+		if (quantity == totalQuantity)
+		{
+			state = buy ? GrandExchangeOfferState.BOUGHT : GrandExchangeOfferState.SOLD;
+		}
+		else if (random.nextDouble() < partialFillRatio)
+		{
+			state = buy ? GrandExchangeOfferState.BUYING : GrandExchangeOfferState.SELLING;
+		}
+		else
+		{
+			state = buy ? GrandExchangeOfferState.CANCELLED_BUY : GrandExchangeOfferState.CANCELLED_SELL;
+		}
+		//trades with several fills get past the margin check tick threshold
+		return offer(buy, quantity, price, slot, state, totalQuantity, Math.max(ticksSinceFirstOffer, 3));
+	}
+
+	private OfferEvent offer(boolean buy, int quantity, int price, int slot, GrandExchangeOfferState state, int totalQuantity, int ticksSinceFirstOffer)
+	{
+		int tick = (int) (seconds * 10 / 6);
+		return new OfferEvent(buy, 1, quantity, price, START.plusSeconds(seconds), slot, state, tick, ticksSinceFirstOffer,
+			totalQuantity, true, account, false, null, 0);
+	}
+}
@@ -0,0 +1,127 @@
+package com.flippingutilities;
+
+import com.flippingutilities.model.Flip;
+import com.flippingutilities.model.HistoryManager;
+import com.flippingutilities.model.OfferEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the HistoryManager methods the plugin calls the most, on generated histories. The read benchmarks run
+ * against a history that isn't changing, which is what the stats tab sees between offers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoryManagerBenchmark
+{
+	@Param({"1000", "100000", "1000000"})
+	public int offers;
+
+	@Param({"1", "3"})
+	public int accounts;
+
+	@Param("8")
+	public int slots;
+
+	@Param("0.2")
+	public double marginCheckRatio;
+
+	@Param("0.5")
+	public double partialFillRatio;
+
+	private HistoryManager history;
+	//the start of an interval covering the most recent half of the history
+	private Instant halfway;
+	private OfferEvent offerToMatch;
+
+	@Setup(Level.Trial)
+	public void createHistory()
+	{
+		history = HistoryGenerator.createHistory(offers, accounts, slots, marginCheckRatio, partialFillRatio);
+		List<OfferEvent> offerEvents = history.getCompressedOfferEvents();
+		halfway = offerEvents.get(offerEvents.size() / 2).getTime();
+		offerToMatch = offerEvents.get(offerEvents.size() / 3);
+	}
+
+	/**
+	 * A copy of the history for updateHistory to add to, so the history being read by the other benchmarks isn't
+	 * changed. It's copied every iteration so the history doesn't keep on growing.
+	 */
+	@State(Scope.Benchmark)
+	public static class NewOffers
+	{
+		private HistoryManager history;
+		private HistoryGenerator generator;
+
+		@Setup(Level.Iteration)
+		public void copyHistory(HistoryManagerBenchmark benchmark)
+		{
+			history = benchmark.history.clone();
+			List<OfferEvent> offerEvents = history.getCompressedOfferEvents();
+			//new offers have to come after the ones in the history
+			generator = new HistoryGenerator(-1, "account0", benchmark.slots, benchmark.marginCheckRatio, benchmark.partialFillRatio);
+			generator.skipTo(offerEvents.get(offerEvents.size() - 1).getTime());
+		}
+	}
+
+	@Benchmark
+	public HistoryManager updateHistory(NewOffers newOffers)
+	{
+		newOffers.history.updateHistory(newOffers.generator.next());
+		return newOffers.history;
+	}
+
+	@Benchmark
+	public List<OfferEvent> getIntervalsHistory()
+	{
+		return history.getIntervalsHistory(halfway);
+	}
+
+	@Benchmark
+	public long currentProfitOfTradeList()
+	{
+		return HistoryManager.currentProfit(history.getIntervalsHistory(halfway));
+	}
+
+	@Benchmark
+	public long currentProfit()
+	{
+		return history.currentProfit(halfway);
+	}
+
+	@Benchmark
+	public List<Flip> getFlips()
+	{
+		return history.getFlips(halfway);
+	}
+
+	@Benchmark
+	public List<Flip> createFlips()
+	{
+		return HistoryManager.createFlips(history.getIntervalsHistory(halfway));
+	}
+
+	@Benchmark
+	public List<OfferEvent> getOfferMatches()
+	{
+		return history.getOfferMatches(offerToMatch, 5);
+	}
+}
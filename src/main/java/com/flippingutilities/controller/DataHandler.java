@@ -28,11 +28,20 @@ package com.flippingutilities.controller;
 
 import com.flippingutilities.db.TradePersister;
 import com.flippingutilities.model.AccountData;
+import com.flippingutilities.model.AccountHeader;
 import com.flippingutilities.model.AccountWideData;
+import com.flippingutilities.model.FlippingItem;
+import com.flippingutilities.model.OfferEvent;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Responsible for loading data from disk, handling any operations to access/change data during the plugin's life, and storing
@@ -40,12 +49,37 @@ import java.util.*;
  */
 @Slf4j
 public class DataHandler {
+    //after this many journaled offers the account is stored in full on the next save so its journal doesn't grow forever
+    private static final int JOURNALED_OFFERS_BEFORE_CHECKPOINT = 500;
+    //journaled offers are written to disk at least this often, so this is about how much a crash can lose
+    private static final int JOURNAL_FLUSH_INTERVAL_SECONDS = 2;
+    //offers are covered by the journal, so full stores only need to happen often enough to not lose other changes
+    private static final int STORE_INTERVAL_SECONDS = 60;
+    //accounts that aren't logged in or being viewed are dropped from memory after not being used for this long
+    private static final long EVICT_AFTER_MS = TimeUnit.MINUTES.toMillis(5);
+
     FlippingPlugin plugin;
     private AccountWideData accountWideData;
-    private Map<String, AccountData> accountSpecificData = new HashMap<>();
-    private boolean accountWideDataChanged = false;
-    private Set<String> accountsWithUnsavedChanges = new HashSet<>();
-    public String thisClientLastStored;
+    //every account this client knows about, whether or not its data is currently loaded
+    private Map<String, AccountHeader> accountHeaders = new ConcurrentHashMap<>();
+    //the accounts whose full data is currently loaded (hydrated). Accounts are only loaded when they're needed.
+    private Map<String, AccountData> accountSpecificData = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastAccessTimes = new ConcurrentHashMap<>();
+    //accounts that have already had their session started since the plugin started, so being loaded again after
+    //being evicted doesn't reset it
+    private final Set<String> accountsWithStartedSessions = ConcurrentHashMap.newKeySet();
+    //accounts that have been handed to the persister but not written yet, they can't be evicted until then
+    private final Set<String> accountsBeingStored = ConcurrentHashMap.newKeySet();
+    private volatile boolean accountWideDataChanged = false;
+    private Set<String> accountsWithUnsavedChanges = ConcurrentHashMap.newKeySet();
+    //accounts whose session time, last offers or slot timers changed, which are stored in a small file of their own
+    //rather than with the rest of the account, see AccountState
+    private final Set<String> accountsWithUnsavedState = ConcurrentHashMap.newKeySet();
+    //journal entries that haven't been written to disk yet, keyed by display name. Guarded by its own lock.
+    private final Map<String, List<String>> unflushedJournalEntries = new HashMap<>();
+    //does all the disk writes so the threads changing the data never wait on them
+    private final ScheduledExecutorService persister = Executors.newSingleThreadScheduledExecutor();
+    public volatile String thisClientLastStored;
 
     public DataHandler(FlippingPlugin plugin) {
         this.plugin = plugin;
@@ -65,36 +99,61 @@ public class DataHandler {
         AccountData accountData = new AccountData();
         accountData.prepareForUse(plugin);
         accountSpecificData.put(displayName, accountData);
+        accountHeaders.put(displayName, accountData.createHeader(displayName));
+        accountsWithStartedSessions.add(displayName);
+        lastAccessTimes.put(displayName, System.currentTimeMillis());
     }
 
     public void deleteAccount(String displayName) {
         log.info("deleting account: {}", displayName);
+        accountHeaders.remove(displayName);
         accountSpecificData.remove(displayName);
         TradePersister.deleteFile(displayName + ".json");
+        TradePersister.deleteFile(displayName + TradePersister.JOURNAL_EXTENSION);
+        TradePersister.deleteFile(displayName + TradePersister.STATE_EXTENSION);
     }
 
     public Collection<AccountData> getAllAccountData() {
+        hydrateAllAccounts();
         accountsWithUnsavedChanges.addAll(accountSpecificData.keySet());
         return accountSpecificData.values();
     }
 
     public Collection<AccountData> viewAllAccountData() {
+        hydrateAllAccounts();
         return accountSpecificData.values();
     }
 
     //calls it if data is going to be updated,
     public AccountData getAccountData(String displayName) {
-        accountsWithUnsavedChanges.add(displayName);
-        return accountSpecificData.get(displayName);
+        AccountData accountData = hydrateAccount(displayName);
+        if (accountData != null) {
+            accountsWithUnsavedChanges.add(displayName);
+        }
+        return accountData;
     }
 
     //is called if account data just needs to be viewed, not updated
     public AccountData viewAccountData(String displayName) {
-        return accountSpecificData.get(displayName);
+        return hydrateAccount(displayName);
     }
 
     public Set<String> getCurrentAccounts() {
-        return accountSpecificData.keySet();
+        return accountHeaders.keySet();
+    }
+
+    /**
+     * Gets the header of an account, which is available whether or not the account's data is loaded.
+     */
+    public AccountHeader viewAccountHeader(String displayName) {
+        return displayName == null ? null : accountHeaders.get(displayName);
+    }
+
+    /**
+     * Whether an account's data is in memory, so getting it won't read its file.
+     */
+    public boolean isAccountLoaded(String displayName) {
+        return accountSpecificData.containsKey(displayName);
     }
 
     public void markDataAsHavingChanged(String displayName) {
@@ -106,35 +165,259 @@ public class DataHandler {
         }
     }
 
+    /**
+     * Marks the parts of an account that change all the time, such as its session time and the last offer in each
+     * slot, as needing to be stored. Unlike markDataAsHavingChanged, this doesn't cause the whole account to be stored.
+     */
+    public void markStateAsHavingChanged(String displayName) {
+        accountsWithUnsavedState.add(displayName);
+    }
+
+    /**
+     * Records an offer that was just added to an account's trades in that account's journal. This way the offer is
+     * on disk without the whole account having to be stored. If the offer can't be journaled, the account is marked
+     * as having unsaved changes so the offer is stored with the rest of the account instead.
+     *
+     * @param displayName the account the offer belongs to
+     * @param item        the flipping item the offer was added to
+     * @param offer       the offer
+     */
+    public void journalOffer(String displayName, FlippingItem item, OfferEvent offer) {
+        AccountData data = accountSpecificData.get(displayName);
+        if (data == null) {
+            return;
+        }
+        long sequence = data.getJournalSequence() + 1;
+        String entry = TradePersister.toJournalEntry(sequence, item.getItemName(), offer);
+        data.setJournalSequence(sequence);
+        data.setJournaledOffers(data.getJournaledOffers() + 1);
+        if (data.getJournaledOffers() >= JOURNALED_OFFERS_BEFORE_CHECKPOINT) {
+            accountsWithUnsavedChanges.add(displayName);
+        }
+        synchronized (unflushedJournalEntries) {
+            unflushedJournalEntries.computeIfAbsent(displayName, k -> new ArrayList<>()).add(entry);
+        }
+    }
+
+    /**
+     * Serializes the data that has changed since it was last stored and hands it off to the persister to be written
+     * to disk. The serializing happens on the calling thread, which should be the offer pipeline's worker (the thread
+     * that changes the trades) so the stored data is consistent, and never the client thread. This method never waits
+     * on the disk.
+     */
     public void storeData() {
         log.info("storing data");
+        Set<String> storedAccounts = new HashSet<>();
         if (accountsWithUnsavedChanges.size() > 0) {
             log.info("accounts with unsaved changes are {}. Saving them.", accountsWithUnsavedChanges);
-            accountsWithUnsavedChanges.forEach(accountName -> storeAccountData(accountName));
-            accountsWithUnsavedChanges.clear();
+            for (String accountName : new ArrayList<>(accountsWithUnsavedChanges)) {
+                //removed before it's serialized so a change made after this is stored next time
+                accountsWithUnsavedChanges.remove(accountName);
+                accountsWithUnsavedState.remove(accountName);
+                storeAccountData(accountName);
+                storedAccounts.add(accountName);
+            }
+        }
+
+        for (String accountName : new ArrayList<>(accountsWithUnsavedState)) {
+            accountsWithUnsavedState.remove(accountName);
+            if (!storedAccounts.contains(accountName)) {
+                storeAccountState(accountName);
+            }
         }
 
         if (accountWideDataChanged) {
             log.info("account wide data changed, saving it.");
-            storeAccountWideData();
             accountWideDataChanged = false;
+            storeAccountWideData();
         }
     }
 
+    /**
+     * Starts periodically flushing journaled offers and storing changed data, so a crash only loses the last few
+     * seconds of offers rather than everything since login.
+     */
+    private void startPersister() {
+        persister.scheduleWithFixedDelay(this::flushJournals, JOURNAL_FLUSH_INTERVAL_SECONDS, JOURNAL_FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        //offers are applied to the data on the offer pipeline's worker, so it's serialized there
+        persister.scheduleWithFixedDelay(() -> plugin.getNewOfferEventPipelineHandler().runAfterQueuedOffers(() -> {
+            storeData();
+            evictColdAccounts();
+        }), STORE_INTERVAL_SECONDS, STORE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stores any changed data, waits for everything handed to the persister to be written, and stops it. Called when
+     * the client or plugin is shutting down. The data is serialized on the persister rather than the calling thread,
+     * which can be the client thread.
+     *
+     * @param offerWorkerStopped whether the offer pipeline's worker has stopped. If it hasn't, it can still be changing
+     *                           the trades, so only the journal, which is consistent line by line, is written.
+     */
+    public void shutdown(boolean offerWorkerStopped) {
+        if (persister.isShutdown()) {
+            return;
+        }
+        if (offerWorkerStopped) {
+            try {
+                //storeData hands the writes back to the persister, so it has to finish before the persister is shut down
+                persister.submit(this::storeData).get(10, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            catch (ExecutionException | TimeoutException e) {
+                log.info("couldn't store data before shutdown, e = {}", e);
+            }
+        }
+        else {
+            log.info("not storing data on shutdown as offers are still being applied, the journal has them instead");
+        }
+        persister.execute(this::flushJournals);
+        persister.shutdown();
+        try {
+            if (!persister.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.info("persister didn't finish writing data before shutdown");
+            }
+        }
+        catch (InterruptedException e) {
+            log.info("interrupted while waiting for the persister to finish writing data");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes the journal entries that have accumulated since the last flush. Only runs on the persister.
+     */
+    private void flushJournals() {
+        Map<String, List<String>> entriesToFlush;
+        synchronized (unflushedJournalEntries) {
+            if (unflushedJournalEntries.isEmpty()) {
+                return;
+            }
+            entriesToFlush = new HashMap<>(unflushedJournalEntries);
+            unflushedJournalEntries.clear();
+        }
+
+        entriesToFlush.forEach((displayName, entries) -> {
+            try {
+                TradePersister.appendToJournal(displayName, entries);
+            }
+            catch (IOException e) {
+                log.info("couldn't journal offers for {}, storing the whole account on the next save instead, error = " + e, displayName);
+                accountsWithUnsavedChanges.add(displayName);
+            }
+        });
+    }
+
     public void loadData() {
         try {
             log.info("initiating load");
             TradePersister.setup();
             accountWideData = fetchAccountWideData();
-            accountSpecificData = fetchAllAccountData();
+            fetchAccountHeaders();
         }
         catch (IOException e) {
             log.info("error while loading data, setting accountwidedata and accountspecific to defaults", e);
             accountWideData = new AccountWideData();
             accountWideData.setDefaults();
-            accountSpecificData = new HashMap<>();
+            accountHeaders = new ConcurrentHashMap<>();
+            accountSpecificData = new ConcurrentHashMap<>();
             accountWideDataChanged = true;
         }
+        startPersister();
+    }
+
+    /**
+     * Returns an account's data, loading it from disk first if it isn't in memory. The file is read on the calling
+     * thread, so the EDT and client thread make sure an account is loaded before they need it, see
+     * {@link FlippingPlugin#changeView(String)} and {@link FlippingPlugin#handleLogin(String)}.
+     *
+     * @param displayName the account
+     * @return the account's data, or null if this client doesn't know about the account
+     */
+    private AccountData hydrateAccount(String displayName) {
+        if (displayName == null) {
+            return null;
+        }
+        AccountData accountData = accountSpecificData.get(displayName);
+        if (accountData == null && accountHeaders.containsKey(displayName)) {
+            synchronized (this) {
+                accountData = accountSpecificData.get(displayName);
+                if (accountData == null) {
+                    log.info("{} isn't loaded, loading it", displayName);
+                    accountData = fetchAccountData(displayName);
+                    onHydrated(displayName, accountData);
+                }
+            }
+        }
+        if (accountData != null) {
+            lastAccessTimes.put(displayName, System.currentTimeMillis());
+        }
+        return accountData;
+    }
+
+    /**
+     * Loads every account that isn't in memory yet, such as when the account wide view needs all of them.
+     */
+    private synchronized void hydrateAllAccounts() {
+        List<String> coldAccounts = new ArrayList<>();
+        for (String displayName : accountHeaders.keySet()) {
+            if (!accountSpecificData.containsKey(displayName)) {
+                coldAccounts.add(displayName);
+            }
+        }
+        if (!coldAccounts.isEmpty()) {
+            log.info("loading {} for a view of every account", coldAccounts);
+            fetchAccounts(coldAccounts).forEach(this::onHydrated);
+        }
+        long now = System.currentTimeMillis();
+        accountSpecificData.keySet().forEach(displayName -> lastAccessTimes.put(displayName, now));
+    }
+
+    private void onHydrated(String displayName, AccountData accountData) {
+        //same as when every account was loaded at startup, an account's session starts the first time it's loaded
+        if (accountsWithStartedSessions.add(displayName)) {
+            accountData.startNewSession();
+        }
+        accountSpecificData.put(displayName, accountData);
+    }
+
+    /**
+     * Drops accounts from memory that haven't been used in a while and aren't the logged in or viewed account.
+     * Accounts with changes that haven't made it to disk yet are kept, since the file is where they'll be loaded
+     * from the next time they're needed.
+     */
+    private void evictColdAccounts() {
+        //the account wide view is built from every account so they're all in use
+        if (FlippingPlugin.ACCOUNT_WIDE.equals(plugin.getAccountCurrentlyViewed())) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for (String displayName : new ArrayList<>(accountSpecificData.keySet())) {
+            if (displayName.equals(plugin.getCurrentlyLoggedInAccount())
+                    || displayName.equals(plugin.getAccountCurrentlyViewed())
+                    || now - lastAccessTimes.getOrDefault(displayName, 0L) < EVICT_AFTER_MS
+                    || accountsWithUnsavedChanges.contains(displayName)
+                    || accountsWithUnsavedState.contains(displayName)
+                    || accountsBeingStored.contains(displayName)
+                    || hasUnflushedJournalEntries(displayName)) {
+                continue;
+            }
+            log.info("evicting {} as it hasn't been used recently", displayName);
+            AccountData accountData = accountSpecificData.remove(displayName);
+            AccountHeader header = accountData.createHeader(displayName);
+            header.setLastModified(TradePersister.lastModified(displayName + ".json"));
+            accountHeaders.put(displayName, header);
+            lastAccessTimes.remove(displayName);
+        }
+    }
+
+    private boolean hasUnflushedJournalEntries(String displayName) {
+        synchronized (unflushedJournalEntries) {
+            return unflushedJournalEntries.containsKey(displayName);
+        }
     }
 
     public void loadAccountWideData() {
@@ -142,9 +425,35 @@ public class DataHandler {
         accountWideData = fetchAccountWideData();
     }
 
+    /**
+     * Called when another client changed an account's file. If the account's data is in memory it's reloaded,
+     * otherwise only its header is, as the data will be read from the changed file whenever it's needed.
+     */
     public void loadAccountData(String displayName) {
+        if (!accountSpecificData.containsKey(displayName)) {
+            log.info("{} isn't loaded, only loading its header", displayName);
+            accountHeaders.put(displayName, fetchAccountHeader(displayName));
+            return;
+        }
         log.info("loading data for {}", displayName);
-        accountSpecificData.put(displayName, fetchAccountData(displayName));
+        AccountData accountData = fetchAccountData(displayName);
+        accountSpecificData.put(displayName, accountData);
+        accountHeaders.put(displayName, accountData.createHeader(displayName));
+    }
+
+    private AccountHeader fetchAccountHeader(String displayName) {
+        try {
+            AccountHeader header = TradePersister.loadHeader(displayName);
+            if (header != null) {
+                return header;
+            }
+        }
+        catch (IOException e) {
+            log.info("couldn't load header for {}, e = " + e, displayName);
+        }
+        AccountHeader header = new AccountHeader();
+        header.setDisplayName(displayName);
+        return header;
     }
 
     private AccountWideData fetchAccountWideData() {
@@ -165,15 +474,49 @@ public class DataHandler {
         }
     }
 
-    private Map<String, AccountData> fetchAllAccountData()
+    /**
+     * Reads just the header of every account so the accounts are known about without loading all of their trades.
+     * Accounts stored before headers existed, or that only have a journal, don't have a header to read and are
+     * loaded fully instead. They get a header the next time they are stored.
+     */
+    private void fetchAccountHeaders()
+    {
+        List<String> accountsWithoutHeaders = new ArrayList<>();
+        for (String displayName : TradePersister.getStoredDisplayNames())
+        {
+            try
+            {
+                AccountHeader header = TradePersister.loadHeader(displayName);
+                if (header == null)
+                {
+                    accountsWithoutHeaders.add(displayName);
+                }
+                else
+                {
+                    accountHeaders.put(displayName, header);
+                }
+            }
+            catch (IOException e)
+            {
+                log.info("couldn't load header for {}, loading the whole account instead, e = " + e, displayName);
+                accountsWithoutHeaders.add(displayName);
+            }
+        }
+        log.info("loaded headers for {}", accountHeaders.keySet());
+
+        fetchAccounts(accountsWithoutHeaders).forEach((displayName, accountData) -> {
+            accountHeaders.put(displayName, accountData.createHeader(displayName));
+            onHydrated(displayName, accountData);
+            lastAccessTimes.put(displayName, System.currentTimeMillis());
+        });
+    }
+
+    private Map<String, AccountData> fetchAccounts(List<String> displayNames)
     {
         try
         {
-            Map<String, AccountData> trades = TradePersister.loadAllAccounts();
-            trades.values().forEach(accountData -> {
-                accountData.startNewSession();
-                accountData.prepareForUse(plugin);
-            });
+            Map<String, AccountData> trades = TradePersister.loadAccounts(displayNames, AccountData::sanitize);
+            trades.forEach(this::prepareLoadedAccount);
             log.info("successfully loaded trades");
             return trades;
         }
@@ -189,47 +532,116 @@ public class DataHandler {
         try
         {
             AccountData accountData = TradePersister.loadAccount(displayName);
-            accountData.prepareForUse(plugin);
+            accountData.sanitize();
+            prepareLoadedAccount(displayName, accountData);
             return accountData;
         }
         catch (IOException e)
         {
             log.info("couldn't load trades for {}, e = " + e, displayName);
-            return new AccountData();
+            AccountData accountData = new AccountData();
+            prepareLoadedAccount(displayName, accountData);
+            return accountData;
         }
     }
 
+    /**
+     * Finishes getting an account that was just read from disk ready for use. Everything but the ge limits is done on
+     * the loading thread. The ge limits need the item manager, so they're refreshed on the client thread, from a copy
+     * of the items, as the trades list belongs to the offer worker once the account is in use.
+     */
+    private void prepareLoadedAccount(String displayName, AccountData accountData)
+    {
+        accountData.prepareSlotTimers(plugin);
+        List<FlippingItem> items = new ArrayList<>(accountData.getTrades());
+        plugin.getClientThread().invoke(() -> AccountData.prepareClientDependentFields(plugin, items));
+        markIfJournalIsLong(displayName, accountData);
+    }
+
     private void storeAccountData(String displayName)
     {
-        try
+        AccountData data = accountSpecificData.get(displayName);
+        if (data == null)
         {
-            AccountData data = accountSpecificData.get(displayName);
-            if (data == null)
+            //the account isn't loaded (or was deleted), so its file already has everything there is to store
+            log.info("not storing {} as its data isn't loaded", displayName);
+            return;
+        }
+        AccountHeader header = data.createHeader(displayName);
+        data.setHeader(header);
+        accountHeaders.put(displayName, header);
+        String json = TradePersister.serialize(data);
+        long journalSequence = data.getJournalSequence();
+        data.setJournaledOffers(0);
+        accountsBeingStored.add(displayName);
+        persister.execute(() -> {
+            try
             {
-                log.info("for an unknown reason the data associated with {} has been set to null. Storing" +
-                        "an empty AccountData object instead.", displayName);
-                data = new AccountData();
+                thisClientLastStored = displayName;
+                TradePersister.checkpointAccount(displayName, json, journalSequence);
+                header.setLastModified(TradePersister.lastModified(displayName + ".json"));
+                log.info("successfully stored trades for {}", displayName);
             }
-            thisClientLastStored = displayName;
-            TradePersister.storeTrades(displayName, data);
-            log.info("successfully stored trades for {}", displayName);
-        }
-        catch (IOException e)
+            catch (IOException e)
+            {
+                log.info("couldn't store trades, error = " + e);
+                accountsWithUnsavedChanges.add(displayName);
+            }
+            finally
+            {
+                accountsBeingStored.remove(displayName);
+            }
+        });
+    }
+
+    private void storeAccountState(String displayName)
+    {
+        AccountData data = accountSpecificData.get(displayName);
+        if (data == null)
         {
-            log.info("couldn't store trades, error = " + e);
+            return;
         }
+        long sequence = data.getStateSequence() + 1;
+        data.setStateSequence(sequence);
+        String json = TradePersister.serialize(data.createState(sequence));
+        accountsBeingStored.add(displayName);
+        persister.execute(() -> {
+            try
+            {
+                TradePersister.storeAccountState(displayName, json);
+            }
+            catch (IOException e)
+            {
+                log.info("couldn't store the state of {}, error = " + e, displayName);
+                accountsWithUnsavedState.add(displayName);
+            }
+            finally
+            {
+                accountsBeingStored.remove(displayName);
+            }
+        });
     }
 
-    private void storeAccountWideData() {
-        try {
-            TradePersister.storeTrades("accountwide", accountWideData);
-            log.info("successfully stored account wide data");
-        }
-        catch (IOException e) {
-            log.info("couldn't store trades", e);
+    private void markIfJournalIsLong(String displayName, AccountData accountData) {
+        if (accountData.getJournaledOffers() >= JOURNALED_OFFERS_BEFORE_CHECKPOINT) {
+            accountsWithUnsavedChanges.add(displayName);
         }
     }
 
+    private void storeAccountWideData() {
+        String json = TradePersister.serialize(accountWideData);
+        persister.execute(() -> {
+            try {
+                TradePersister.storeSerializedTrades("accountwide", json);
+                log.info("successfully stored account wide data");
+            }
+            catch (IOException e) {
+                log.info("couldn't store trades", e);
+                accountWideDataChanged = true;
+            }
+        });
+    }
+
 
 
 
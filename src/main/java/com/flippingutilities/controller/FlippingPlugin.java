@@ -63,10 +63,10 @@ import net.runelite.client.ui.ClientToolbar;
 import net.runelite.client.ui.FontManager;
 import net.runelite.client.ui.NavigationButton;
 import net.runelite.client.util.ImageUtil;
-import net.runelite.http.api.item.ItemStats;
 import okhttp3.*;
 
 import javax.inject.Inject;
+import javax.swing.SwingUtilities;
 import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.io.File;
@@ -77,8 +77,8 @@ import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.*;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 
@@ -99,7 +99,6 @@ public class FlippingPlugin extends Plugin {
     private ClientThread clientThread;
     @Inject
     private ScheduledExecutorService executor;
-    private ScheduledFuture generalRepeatingTasks;
     @Inject
     private ClientToolbar clientToolbar;
     private NavigationButton navButton;
@@ -140,8 +139,9 @@ public class FlippingPlugin extends Plugin {
 
     //the display name of the account whose trade list the user is currently looking at as selected
     //through the dropdown menu
+    //set on the executor by changeView, once the account's data has been loaded
     @Getter
-    private String accountCurrentlyViewed = ACCOUNT_WIDE;
+    private volatile String accountCurrentlyViewed = ACCOUNT_WIDE;
 
     //the display name of the currently logged in user. This is the only account that can actually receive offers
     //as this is the only account currently logged in.
@@ -154,16 +154,16 @@ public class FlippingPlugin extends Plugin {
     @Getter
     private List<OfferEvent> eventsReceivedBeforeFullLogin = new ArrayList<>();
 
-    //building the account wide trade list is an expensive operation so we store it in this variable and only recompute
-    //it if we have gotten an update since the last account wide trade list build.
-    @Setter
-    boolean updateSinceLastAccountWideBuild = true;
-    List<FlippingItem> prevBuiltAccountWideList;
+    //building the account wide trade list is an expensive operation so we store it here and only recompute it if the
+    //account's trade lists have changed in a way that can't be applied to it. New offers are applied to it as they
+    //come in, in updateAccountWideList. Offers are applied on the offer pipeline's worker while the EDT builds and
+    //reads the list, so the list and its items are never changed once they're built. A changed copy replaces them,
+    //and only if nothing else has replaced them in the meantime.
+    private final AtomicReference<AccountWideList> accountWideList = new AtomicReference<>(AccountWideList.stale());
 
     //updates the cache by monitoring the directory and loading a file's contents into the cache if it has been changed
     private CacheUpdaterJob cacheUpdaterJob;
 
-    private ScheduledFuture slotTimersTask;
     private Instant startUpTime = Instant.now();
 
     @Getter
@@ -173,8 +173,12 @@ public class FlippingPlugin extends Plugin {
     @Getter
     private DataHandler dataHandler;
     private GameUiChangesHandler gameUiChangesHandler;
+    @Getter
     private NewOfferEventPipelineHandler newOfferEventPipelineHandler;
     @Getter
+    private PanelRebuildScheduler panelRebuildScheduler;
+    private UiTickScheduler uiTickScheduler;
+    @Getter
     private WikiDataFetcherJob wikiDataFetcherJob;
 
     @Getter
@@ -188,6 +192,8 @@ public class FlippingPlugin extends Plugin {
         dataHandler = new DataHandler(this);
         gameUiChangesHandler = new GameUiChangesHandler(this);
         newOfferEventPipelineHandler = new NewOfferEventPipelineHandler(this);
+        panelRebuildScheduler = new PanelRebuildScheduler(this, executor);
+        uiTickScheduler = new UiTickScheduler(this, executor);
 
         flippingPanel = new FlippingPanel(this, itemManager, executor);
         statPanel = new StatsPanel(this, itemManager, executor);
@@ -215,7 +221,7 @@ public class FlippingPlugin extends Plugin {
 
             dataHandler.loadData();
             masterPanel.setupAccSelectorDropdown(dataHandler.getCurrentAccounts());
-            generalRepeatingTasks = setupRepeatingTasks(1000);
+            uiTickScheduler.start(1000);
             startJobs();
 
             //this is only relevant if the user downloads/enables the plugin after they login.
@@ -230,28 +236,16 @@ public class FlippingPlugin extends Plugin {
 
     @Override
     protected void shutDown() {
-        if (generalRepeatingTasks != null) {
-            generalRepeatingTasks.cancel(true);
-            generalRepeatingTasks = null;
-        }
-        if (slotTimersTask != null) {
-            slotTimersTask.cancel(true);
-            slotTimersTask = null;
-        }
+        uiTickScheduler.stop();
+        dataHandler.shutdown(newOfferEventPipelineHandler.shutdown());
 
         clientToolbar.removeNavigation(navButton);
     }
 
     @Subscribe(priority = 101)
     public void onClientShutdown(ClientShutdown clientShutdownEvent) {
-        if (generalRepeatingTasks != null) {
-            generalRepeatingTasks.cancel(true);
-        }
-        if (slotTimersTask != null) {
-            slotTimersTask.cancel(true);
-            slotTimersTask = null;
-        }
-        dataHandler.storeData();
+        uiTickScheduler.stop();
+        dataHandler.shutdown(newOfferEventPipelineHandler.shutdown());
         cacheUpdaterJob.stop();
         wikiDataFetcherJob.stop();
     }
@@ -316,6 +310,18 @@ public class FlippingPlugin extends Plugin {
             log.info("data handler does not contain data for {}", displayName);
             dataHandler.addAccount(displayName);
             masterPanel.getAccountSelector().addItem(displayName);
+        } else if (!dataHandler.isAccountLoaded(displayName)) {
+            //the account's file is read on the executor rather than holding up the client thread, offers received
+            //in the meantime are kept in eventsReceivedBeforeFullLogin until the login is finished.
+            executor.execute(() -> {
+                dataHandler.viewAccountData(displayName);
+                clientThread.invokeLater(() -> {
+                    if (currentlyLoggedInAccount == null && client.getGameState() == GameState.LOGGED_IN) {
+                        handleLogin(displayName);
+                    }
+                });
+            });
+            return;
         }
 
         loginTickCount = client.getTickCount();
@@ -333,55 +339,20 @@ public class FlippingPlugin extends Plugin {
         //this will cause changeView to be invoked which will cause a rebuild of
         //flipping and stats panel
         masterPanel.getAccountSelector().setSelectedItem(displayName);
-
-        if (slotTimersTask == null && config.slotTimersEnabled()) {
-            log.info("starting slot timers on login");
-            slotTimersTask = startSlotTimers();
-        }
     }
 
     public void handleLogout() {
         log.info("{} is logging out", currentlyLoggedInAccount);
 
-        dataHandler.getAccountData(currentlyLoggedInAccount).setLastSessionTimeUpdate(null);
-        dataHandler.storeData();
+        dataHandler.viewAccountData(currentlyLoggedInAccount).setLastSessionTimeUpdate(null);
+        dataHandler.markStateAsHavingChanged(currentlyLoggedInAccount);
+        //stored after the account's queued offers have been applied, so they are stored with it
+        newOfferEventPipelineHandler.runAfterQueuedOffers(dataHandler::storeData);
 
-        if (slotTimersTask != null && !slotTimersTask.isCancelled()) {
-            log.info("cancelling slot timers task on logout");
-            slotTimersTask.cancel(true);
-        }
-        slotTimersTask = null;
         currentlyLoggedInAccount = null;
         masterPanel.revertToSafeDisplay();
     }
 
-    /**
-     * Currently used for updating time sensitive displays such as the accumulated session time,
-     * how long ago an item was flipped, etc.
-     *
-     * @return a future object that can be used to cancel the tasks
-     */
-    public ScheduledFuture setupRepeatingTasks(int msStartDelay) {
-        return executor.scheduleAtFixedRate(() ->
-        {
-            try {
-                flippingPanel.updateTimerDisplays();
-                statPanel.updateTimeDisplay();
-                updateSessionTime();
-            } catch (ConcurrentModificationException e) {
-                log.info("concurrent modification exception. This is fine, will just restart tasks after delay." +
-                        " Cancelling general repeating tasks and starting it again after 5000 ms delay");
-                generalRepeatingTasks.cancel(true);
-                generalRepeatingTasks = setupRepeatingTasks(5000);
-            } catch (Exception e) {
-                log.info("unknown exception in repeating tasks, error = {}, will cancel and restart them after 5 sec delay", e);
-                generalRepeatingTasks.cancel(true);
-                generalRepeatingTasks = setupRepeatingTasks(5000);
-            }
-
-        }, msStartDelay, 1000, TimeUnit.MILLISECONDS);
-    }
-
     /**
      * This method is invoked every time the plugin receives a GrandExchangeOfferChanged event which is
      * when the user set an offer, cancelled an offer, or when an offer was updated (items bought/sold partially
@@ -424,7 +395,8 @@ public class FlippingPlugin extends Plugin {
      */
     public void handleSessionTimeReset() {
         if (!accountCurrentlyViewed.equals(ACCOUNT_WIDE)) {
-            dataHandler.getAccountData(accountCurrentlyViewed).startNewSession();
+            dataHandler.viewAccountData(accountCurrentlyViewed).startNewSession();
+            dataHandler.markStateAsHavingChanged(accountCurrentlyViewed);
         }
     }
 
@@ -446,35 +418,56 @@ public class FlippingPlugin extends Plugin {
         });
     }
 
+    /**
+     * Removes the items that are hidden and have nothing left to show from the trades lists of the current view. The
+     * trades lists are only changed on the offer worker, so they're removed there, after any offers already queued,
+     * and the panels are rebuilt from the changed lists once they have been.
+     */
     public void truncateTradeList() {
+        List<List<FlippingItem>> tradesLists = getTradesListsForCurrentView();
+        newOfferEventPipelineHandler.runAfterQueuedOffers(() -> {
+            tradesLists.forEach(this::deleteRemovedItems);
+            //invalidated once the trades lists have changed, so it isn't built again from the old ones
+            invalidateAccountWideList();
+            panelRebuildScheduler.markFlippingPanelDirty();
+            panelRebuildScheduler.markStatsPanelDirty();
+        });
+    }
+
+    /**
+     * Gets the trades lists of every account in the current view, marking them as having changed.
+     */
+    private List<List<FlippingItem>> getTradesListsForCurrentView() {
         if (accountCurrentlyViewed.equals(ACCOUNT_WIDE)) {
-            dataHandler.getAllAccountData().forEach(accountData -> deleteRemovedItems(accountData.getTrades()));
-        } else {
-            deleteRemovedItems(getTradesForCurrentView());
+            return dataHandler.getAllAccountData().stream().map(AccountData::getTrades).collect(Collectors.toList());
         }
+        return Collections.singletonList(dataHandler.getAccountData(accountCurrentlyViewed).getTrades());
     }
 
     /**
      * This method is invoked every time a user selects a username from the dropdown at the top of the
      * panel. If the username selected does not exist in the cache, it uses loadTradeHistory to load it from
      * disk and set the cache. Otherwise, it just reads what in the cache for that username. It updates the displays
-     * with the trades it either found in the cache or from disk.
+     * with the trades it either found in the cache or from disk. This is called on the EDT, so the trades are
+     * loaded on the executor, and the view only changes once they have been.
      *
      * @param selectedName the username the user selected from the dropdown menu.
      */
     public void changeView(String selectedName) {
         log.info("changing view to {}", selectedName);
 
-        List<FlippingItem> tradesListToDisplay;
-        if (selectedName.equals(ACCOUNT_WIDE)) {
-            tradesListToDisplay = createAccountWideList();
-        } else {
-            tradesListToDisplay = dataHandler.getAccountData(selectedName).getTrades();
-        }
+        executor.execute(() -> {
+            List<FlippingItem> tradesListToDisplay;
+            if (selectedName.equals(ACCOUNT_WIDE)) {
+                tradesListToDisplay = createAccountWideList();
+            } else {
+                tradesListToDisplay = dataHandler.viewAccountData(selectedName).getTrades();
+            }
 
-        accountCurrentlyViewed = selectedName;
-        statPanel.rebuild(tradesListToDisplay);
-        flippingPanel.rebuild(tradesListToDisplay);
+            accountCurrentlyViewed = selectedName;
+            statPanel.rebuild(tradesListToDisplay);
+            flippingPanel.rebuild(tradesListToDisplay);
+        });
     }
 
     private void startJobs() {
@@ -502,6 +495,12 @@ public class FlippingPlugin extends Plugin {
      * @param fileName name of the file which was modified.
      */
     public void onDirectoryUpdate(String fileName) {
+        //journals only change between snapshots, the data in them is picked up when the account's snapshot is stored.
+        //Temp files are snapshots that are still being written.
+        if (!fileName.endsWith(".json")) {
+            return;
+        }
+
         String displayNameOfChangedAcc = fileName.split("\\.")[0];
 
         if (displayNameOfChangedAcc.equals(dataHandler.thisClientLastStored)) {
@@ -517,29 +516,31 @@ public class FlippingPlugin extends Plugin {
             return;
         }
 
+        //the file is read on the executor, the ge limits of its items are refreshed on the client thread by the data
+        //handler as they use the item manager
         executor.schedule(() ->
         {
-            //have to run on client thread cause loadAccount calls accountData.prepareForUse which uses the itemmanager
-            clientThread.invokeLater(() -> {
-                log.info("second has passed, updating cache for {}", displayNameOfChangedAcc);
-                dataHandler.loadAccountData(displayNameOfChangedAcc);
+            log.info("second has passed, updating cache for {}", displayNameOfChangedAcc);
+            dataHandler.loadAccountData(displayNameOfChangedAcc);
+            boolean multipleAccounts = dataHandler.getCurrentAccounts().size() > 1;
+            SwingUtilities.invokeLater(() -> {
                 if (!masterPanel.getViewSelectorItems().contains(displayNameOfChangedAcc)) {
                     masterPanel.getAccountSelector().addItem(displayNameOfChangedAcc);
                 }
 
-                if (dataHandler.getCurrentAccounts().size() > 1) {
+                if (multipleAccounts) {
                     masterPanel.getAccountSelector().setVisible(true);
                 }
+            });
 
-                updateSinceLastAccountWideBuild = true;
+            invalidateAccountWideList();
 
-                //rebuild if you are currently looking at the account who's cache just got updated or the account wide view.
-                if (accountCurrentlyViewed.equals(ACCOUNT_WIDE) || accountCurrentlyViewed.equals(displayNameOfChangedAcc)) {
-                    List<FlippingItem> updatedList = viewTradesForCurrentView();
-                    flippingPanel.rebuild(updatedList);
-                    statPanel.rebuild(updatedList);
-                }
-            });
+            //rebuild if you are currently looking at the account who's cache just got updated or the account wide view.
+            if (accountCurrentlyViewed.equals(ACCOUNT_WIDE) || accountCurrentlyViewed.equals(displayNameOfChangedAcc)) {
+                List<FlippingItem> updatedList = viewTradesForCurrentView();
+                flippingPanel.rebuild(updatedList);
+                statPanel.rebuild(updatedList);
+            }
         }, 1000, TimeUnit.MILLISECONDS);
     }
 
@@ -551,10 +552,11 @@ public class FlippingPlugin extends Plugin {
      * @return
      */
     private List<FlippingItem> createAccountWideList() {
-        //since this is an expensive operation, cache its results and only recompute it if there has been an update
-        //to one of the account's tradelists, (updateSinceLastAccountWideBuild is set in onGrandExchangeOfferChanged)
-        if (!updateSinceLastAccountWideBuild) {
-            return prevBuiltAccountWideList;
+        //since this is an expensive operation, cache its results and only recompute it if one of the account's
+        //tradelists has changed in a way updateAccountWideList can't keep up with, such as an account being reloaded.
+        AccountWideList prevList = accountWideList.get();
+        if (!prevList.isStale()) {
+            return prevList.items;
         }
 
         if (dataHandler.getCurrentAccounts().size() == 0) {
@@ -564,20 +566,50 @@ public class FlippingPlugin extends Plugin {
         //take all flipping items from the account cache, regardless of account, and segregate them based on item name.
         Map<Integer, List<FlippingItem>> groupedItems = dataHandler.viewAllAccountData().stream().
                 flatMap(accountData -> accountData.getTrades().stream()).
-                map(FlippingItem::clone).
                 collect(Collectors.groupingBy(FlippingItem::getItemId));
 
-        //take every list containing flipping items of the same type and reduce it to one merged flipping item and put that
-        //item in a final merged list
+        //merge every list containing flipping items of the same type into one flipping item and put that item in a
+        //final merged list. The account's items are left as they are, the merged items get copies of their offers.
         List<FlippingItem> mergedItems = groupedItems.values().stream().
-                map(list -> list.stream().reduce(FlippingItem::merge)).filter(Optional::isPresent).map(Optional::get).
+                map(FlippingItem::merge).
                 collect(Collectors.toList());
 
         mergedItems.sort(Collections.reverseOrder(Comparator.comparing(FlippingItem::getLatestActivityTime)));
 
-        updateSinceLastAccountWideBuild = false;
-        prevBuiltAccountWideList = mergedItems;
-        return mergedItems;
+        //if the list was invalidated while it was being built, it's left to be built again next time
+        AccountWideList builtList = new AccountWideList(mergedItems);
+        accountWideList.compareAndSet(prevList, builtList);
+        return builtList.items;
+    }
+
+    /**
+     * Marks the account wide list as having to be built again the next time it's viewed.
+     */
+    void invalidateAccountWideList() {
+        accountWideList.set(AccountWideList.stale());
+    }
+
+    /**
+     * Applies an offer that was just added to the logged in account's trade list to the account wide trade list, so
+     * it doesn't have to be rebuilt from every account's trade list after each offer. The merged item the offer is
+     * for is replaced by a changed copy of it, which is put where it now belongs in the list. Called on the offer
+     * worker.
+     *
+     * @param item     the flipping item in the logged in account's trade list that the offer was added to
+     * @param newOffer a copy of the offer that was added
+     */
+    public void updateAccountWideList(FlippingItem item, OfferEvent newOffer) {
+        while (true) {
+            AccountWideList prevList = accountWideList.get();
+            //if it's going to be rebuilt anyway, the offer will be in it
+            if (prevList.isStale()) {
+                return;
+            }
+            //only fails if the list was built or invalidated since it was read, in which case it's read again
+            if (accountWideList.compareAndSet(prevList, prevList.withOffer(item, newOffer))) {
+                return;
+            }
+        }
     }
 
     /**
@@ -597,9 +629,9 @@ public class FlippingPlugin extends Plugin {
 
     /**
      * Calculates and updates the session time display in the statistics tab when a user is viewing
-     * the "Session" time interval.
+     * the "Session" time interval. Called every second by the {@link UiTickScheduler}.
      */
-    private void updateSessionTime() {
+    void updateSessionTime() {
         if (currentlyFlipping()) {
             Instant lastSessionTimeUpdate = dataHandler.viewAccountData(currentlyLoggedInAccount).getLastSessionTimeUpdate();
             Duration accumulatedSessionTime = dataHandler.viewAccountData(currentlyLoggedInAccount).getAccumulatedSessionTime();
@@ -609,14 +641,17 @@ public class FlippingPlugin extends Plugin {
             long millisSinceLastSessionTimeUpdate = Instant.now().toEpochMilli() - lastSessionTimeUpdate.toEpochMilli();
             accumulatedSessionTime = accumulatedSessionTime.plus(millisSinceLastSessionTimeUpdate, ChronoUnit.MILLIS);
             lastSessionTimeUpdate = Instant.now();
-            dataHandler.getAccountData(currentlyLoggedInAccount).setAccumulatedSessionTime(accumulatedSessionTime);
-            dataHandler.getAccountData(currentlyLoggedInAccount).setLastSessionTimeUpdate(lastSessionTimeUpdate);
+            dataHandler.viewAccountData(currentlyLoggedInAccount).setAccumulatedSessionTime(accumulatedSessionTime);
+            dataHandler.viewAccountData(currentlyLoggedInAccount).setLastSessionTimeUpdate(lastSessionTimeUpdate);
+            dataHandler.markStateAsHavingChanged(currentlyLoggedInAccount);
 
             if (accountCurrentlyViewed.equals(ACCOUNT_WIDE) || accountCurrentlyViewed.equals(currentlyLoggedInAccount)) {
-                statPanel.updateSessionTimeDisplay(viewAccumulatedTimeForCurrentView());
+                Duration accumulatedTime = viewAccumulatedTimeForCurrentView();
+                SwingUtilities.invokeLater(() -> statPanel.updateSessionTimeDisplay(accumulatedTime));
             }
         } else if (currentlyLoggedInAccount != null) {
-            dataHandler.getAccountData(currentlyLoggedInAccount).setLastSessionTimeUpdate(null);
+            dataHandler.viewAccountData(currentlyLoggedInAccount).setLastSessionTimeUpdate(null);
+            dataHandler.markStateAsHavingChanged(currentlyLoggedInAccount);
         }
     }
 
@@ -646,9 +681,7 @@ public class FlippingPlugin extends Plugin {
             AccountData account = dataHandler.viewAccountData(accountName);
             account.
                     getTrades().
-                    stream().
-                    filter(accountItem -> accountItem.getItemId() == item.getItemId()).
-                    findFirst().
+                    findItem(item.getItemId()).
                     ifPresent(accountItem -> {
                         accountItem.setFavorite(favoriteStatus);
                         markAccountTradesAsHavingChanged(accountName);
@@ -661,9 +694,7 @@ public class FlippingPlugin extends Plugin {
             AccountData account = dataHandler.viewAccountData(accountName);
             account.
                     getTrades().
-                    stream().
-                    filter(accountItem -> accountItem.getItemId() == item.getItemId()).
-                    findFirst().
+                    findItem(item.getItemId()).
                     ifPresent(accountItem -> {
                         accountItem.setFavoriteCode(favoriteCode);
                         markAccountTradesAsHavingChanged(accountName);
@@ -671,68 +702,46 @@ public class FlippingPlugin extends Plugin {
         }
     }
 
-    public void addSelectedGeTabOffers(List<OfferEvent> selectedOffers) {
-        for (OfferEvent offerEvent : selectedOffers) {
-            addSelectedGeTabOffer(offerEvent);
-        }
-
-        //have to add a delay before rebuilding as item limit and name may not have been set yet in addSelectedGeTabOffer due to
-        //clientThread being async and not offering a future to wait on when you submit a runnable...
-        executor.schedule(() -> {
-            flippingPanel.rebuild(viewTradesForCurrentView());
-            statPanel.rebuild(viewTradesForCurrentView());
-        }, 500, TimeUnit.MILLISECONDS);
-    }
-
-    private void addSelectedGeTabOffer(OfferEvent selectedOffer) {
+    /**
+     * Adds the offers the user selected in the GE history tab to the logged in account's trades list. They are added
+     * as one batch on the offer worker, so they are in order with the offers that came in before them.
+     *
+     * @param selectedOffers       the offers scraped from the GE history tab
+     * @param identicalOffersAbove for each offer, how many identical offers are above it in the tab, see
+     *                             {@link GeHistoryTabExtractor#countIdenticalOffersAbove(List)}
+     * @param offersInTab          how many offers there are in the tab, selected or not
+     * @param onAdded              run once the offers have been added
+     */
+    public void addSelectedGeTabOffers(List<OfferEvent> selectedOffers, List<Integer> identicalOffersAbove, int offersInTab, Runnable onAdded) {
         if (currentlyLoggedInAccount == null) {
             return;
         }
-        Optional<FlippingItem> flippingItem = dataHandler.getAccountData(currentlyLoggedInAccount).getTrades().stream().filter(item -> item.getItemId() == selectedOffer.getItemId()).findFirst();
-        if (flippingItem.isPresent()) {
-            flippingItem.get().updateHistory(selectedOffer);
-            flippingItem.get().updateLatestProperties(selectedOffer);
-            //incase it was set to false before
-            flippingItem.get().setValidFlippingPanelItem(true);
-        } else {
-            int tradeItemId = selectedOffer.getItemId();
-            FlippingItem item = new FlippingItem(tradeItemId, "", -1, currentlyLoggedInAccount);
-            item.setValidFlippingPanelItem(true);
-            item.updateLatestProperties(selectedOffer);
-            item.updateHistory(selectedOffer);
-            dataHandler.getAccountData(currentlyLoggedInAccount).getTrades().add(0, item);
-
-            //itemmanager can only be used on the client thread.
-            //i can't put everything in the runnable given to the client thread cause then it executes async and if there
-            //are multiple offers for the same flipping item that doesn't yet exist in trades list, it might create multiple
-            //of them.
-            clientThread.invokeLater(() -> {
-                String itemName = itemManager.getItemComposition(tradeItemId).getName();
-                ItemStats itemStats = itemManager.getItemStats(tradeItemId, false);
-                int geLimit = itemStats != null ? itemStats.getGeLimit() : 0;
-                item.setItemName(itemName);
-                item.setTotalGELimit(geLimit);
-            });
-        }
+        newOfferEventPipelineHandler.addGeTabOffers(currentlyLoggedInAccount, selectedOffers, identicalOffersAbove, offersInTab, onAdded);
     }
 
     public void showGeHistoryTabPanel() {
         clientThread.invokeLater(() -> {
             Widget[] geHistoryTabWidgets = client.getWidget(383, 3).getDynamicChildren();
             List<OfferEvent> offerEvents = GeHistoryTabExtractor.convertWidgetsToOfferEvents(geHistoryTabWidgets);
-            List<List<OfferEvent>> matchingOffers = new ArrayList<>();
             offerEvents.forEach(o -> {
                 o.setItemName(itemManager.getItemComposition(o.getItemId()).getName());
                 o.setMadeBy(getCurrentlyLoggedInAccount());
-                matchingOffers.add(findOfferMatches(o, 5));
             });
-            geHistoryTabPanel.rebuild(offerEvents, matchingOffers, geHistoryTabWidgets, false);
+            //the matches are looked up in the trades list, which belongs to the offer worker
+            newOfferEventPipelineHandler.runAfterQueuedOffers(() -> {
+                List<List<OfferEvent>> matchingOffers = offerEvents.stream().map(o -> findOfferMatches(o, 5)).collect(Collectors.toList());
+                geHistoryTabPanel.rebuild(offerEvents, matchingOffers, geHistoryTabWidgets, false);
+            });
             masterPanel.showView("ge history");
         });
     }
 
+    /**
+     * Finds the most recent offers in the logged in account's history that match an offer from the GE history tab.
+     * Called on the offer worker, as it looks the item up in the trades list.
+     */
     public List<OfferEvent> findOfferMatches(OfferEvent offerEvent, int limit) {
-        Optional<FlippingItem> flippingItem = dataHandler.getAccountData(currentlyLoggedInAccount).getTrades().stream().filter(item -> item.getItemId() == offerEvent.getItemId()).findFirst();
+        Optional<FlippingItem> flippingItem = dataHandler.viewAccountData(currentlyLoggedInAccount).getTrades().findItem(offerEvent.getItemId());
         if (!flippingItem.isPresent()) {
             return new ArrayList<>();
         }
@@ -749,15 +758,10 @@ public class FlippingPlugin extends Plugin {
      * @param startOfInterval
      */
     public void invalidateOffers(Instant startOfInterval) {
-        if (accountCurrentlyViewed.equals(ACCOUNT_WIDE)) {
-            for (AccountData accountData : dataHandler.getAllAccountData()) {
-                accountData.getTrades().forEach(item -> item.invalidateOffers(item.getIntervalHistory(startOfInterval)));
-            }
-        } else {
-            getTradesForCurrentView().forEach(item -> item.invalidateOffers(item.getIntervalHistory(startOfInterval)));
-        }
+        List<List<FlippingItem>> tradesLists = getTradesListsForCurrentView();
+        newOfferEventPipelineHandler.runAfterQueuedOffers(() -> tradesLists.forEach(trades ->
+                trades.forEach(item -> item.invalidateOffers(item.getIntervalHistory(startOfInterval)))));
 
-        updateSinceLastAccountWideBuild = true;
         truncateTradeList();
     }
 
@@ -766,14 +770,9 @@ public class FlippingPlugin extends Plugin {
      * reset button
      */
     public void setAllFlippingItemsAsHidden() {
-        if (accountCurrentlyViewed.equals(ACCOUNT_WIDE)) {
-            for (AccountData accountData : dataHandler.getAllAccountData()) {
-                accountData.getTrades().forEach(item -> item.setValidFlippingPanelItem(false));
-            }
-        } else {
-            getTradesForCurrentView().forEach(flippingItem -> flippingItem.setValidFlippingPanelItem(false));
-        }
-        updateSinceLastAccountWideBuild = true;
+        List<List<FlippingItem>> tradesLists = getTradesListsForCurrentView();
+        newOfferEventPipelineHandler.runAfterQueuedOffers(() -> tradesLists.forEach(trades ->
+                trades.forEach(flippingItem -> flippingItem.setValidFlippingPanelItem(false))));
         truncateTradeList();
     }
 
@@ -860,20 +859,6 @@ public class FlippingPlugin extends Plugin {
         masterPanel.getAccountSelector().removeItem(displayName);
     }
 
-    private ScheduledFuture startSlotTimers() {
-        return executor.scheduleAtFixedRate(() ->
-                dataHandler.viewAccountData(currentlyLoggedInAccount).getSlotTimers().forEach(slotWidgetTimer ->
-                        clientThread.invokeLater(() -> {
-                            try {
-
-                                slotsPanel.updateTimerDisplays(slotWidgetTimer.getSlotIndex(), slotWidgetTimer.createFormattedTimeString());
-                                slotWidgetTimer.updateTimerDisplay();
-                            } catch (Exception e) {
-                                log.info("exception when trying to update timer. e: {}", e);
-                            }
-                        })), 1000, 1000, TimeUnit.MILLISECONDS);
-    }
-
     @Subscribe
     public void onGrandExchangeSearched(GrandExchangeSearched event) {
         final String input = client.getVar(VarClientStr.INPUT_TEXT);
@@ -918,18 +903,78 @@ public class FlippingPlugin extends Plugin {
     public void onConfigChanged(ConfigChanged event) {
         if (event.getGroup().equals(CONFIG_GROUP)) {
             if (event.getKey().equals("slotTimersEnabled")) {
-                if (config.slotTimersEnabled()) {
-                    slotTimersTask = startSlotTimers();
-                } else {
-                    if (slotTimersTask != null) {
-                        slotTimersTask.cancel(true);
-                    }
+                //the slot timers are updated by the ui tick scheduler whenever they're enabled
+                if (!config.slotTimersEnabled()) {
                     dataHandler.viewAccountData(currentlyLoggedInAccount).getSlotTimers().forEach(TradeActivityTimer::resetToDefault);
                 }
             }
 
             statPanel.rebuild(viewTradesForCurrentView());
+            flippingPanel.invalidatePanels();
             flippingPanel.rebuild(viewTradesForCurrentView());
         }
     }
+
+    /**
+     * A built account wide list along with its items by item id, so they're always replaced together.
+     */
+    private static class AccountWideList {
+        //null if the list has to be built again
+        private final List<FlippingItem> items;
+        private final Map<Integer, FlippingItem> itemsById;
+
+        private AccountWideList(List<FlippingItem> items) {
+            this.items = items == null ? null : Collections.unmodifiableList(items);
+            this.itemsById = items == null ? null : Collections.unmodifiableMap(
+                    items.stream().collect(Collectors.toMap(FlippingItem::getItemId, item -> item)));
+        }
+
+        private AccountWideList(List<FlippingItem> items, Map<Integer, FlippingItem> itemsById) {
+            this.items = Collections.unmodifiableList(items);
+            this.itemsById = Collections.unmodifiableMap(itemsById);
+        }
+
+        /**
+         * Each call makes a new one, so a list that was being built when it was invalidated isn't kept.
+         */
+        private static AccountWideList stale() {
+            return new AccountWideList(null);
+        }
+
+        private boolean isStale() {
+            return items == null;
+        }
+
+        /**
+         * Makes a copy of this list with a new offer applied to the merged item it's for.
+         *
+         * @param item     the flipping item in the account's trade list that the offer was added to
+         * @param newOffer a copy of the offer that was added
+         */
+        private AccountWideList withOffer(FlippingItem item, OfferEvent newOffer) {
+            List<FlippingItem> newItems = new ArrayList<>(items);
+            FlippingItem prevMergedItem = itemsById.get(item.getItemId());
+            FlippingItem mergedItem;
+            if (prevMergedItem == null) {
+                mergedItem = item.clone();
+            } else {
+                mergedItem = prevMergedItem.clone();
+                mergedItem.updateMergedItem(item, newOffer);
+                newItems.remove(prevMergedItem);
+            }
+
+            //the list is sorted by latest activity and the item has just become the most recently active, so this
+            //nearly always stops at the front
+            int insertionIdx = 0;
+            while (insertionIdx < newItems.size() &&
+                    newItems.get(insertionIdx).getLatestActivityTime().isAfter(mergedItem.getLatestActivityTime())) {
+                insertionIdx++;
+            }
+            newItems.add(insertionIdx, mergedItem);
+
+            Map<Integer, FlippingItem> newItemsById = new HashMap<>(itemsById);
+            newItemsById.put(mergedItem.getItemId(), mergedItem);
+            return new AccountWideList(newItems, newItemsById);
+        }
+    }
 }
\ No newline at end of file
@@ -1,20 +1,45 @@
 package com.flippingutilities.controller;
 
+import com.flippingutilities.model.AccountData;
 import com.flippingutilities.model.FlippingItem;
 import com.flippingutilities.model.OfferEvent;
+import com.flippingutilities.model.TradeList;
+import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.events.GrandExchangeOfferChanged;
 import net.runelite.client.eventbus.Subscribe;
 import net.runelite.http.api.item.ItemStats;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 public class NewOfferEventPipelineHandler {
     FlippingPlugin plugin;
 
+    //applies offer events to the model one at a time, in the order they came in, so the client thread only has to
+    //screen the OfferEvent and queue it. The queue is unbounded so queueing never blocks the client thread and nothing
+    //but the worker ever applies an offer, which keeps them in order.
+    private final ThreadPoolExecutor worker;
+
     NewOfferEventPipelineHandler(FlippingPlugin plugin) {
         this.plugin = plugin;
+        this.worker = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread thread = new Thread(r, "flipping-utilities-offers");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (r, executor) -> log.info("not running task as the offer worker has been shut down"));
     }
 
     /**
@@ -43,26 +68,186 @@ public class NewOfferEventPipelineHandler {
         onNewOfferEvent(newOfferEvent);
     }
 
+    /**
+     * Screens an offer event and queues it to be applied to the trades list of the account that is logged in. This
+     * is called on the client thread, so the last offers and slot timers, which the slot timers are updated from on
+     * the client thread, are only changed here. Besides queueing the offer, the slots panel is updated and an item
+     * for the offer is made, as both need the item manager. The trades list belongs to the worker, so only the worker
+     * looks up whether the item is in it already, and the item made here is only used if it isn't.
+     *
+     * @param newOfferEvent an offer event made while the currently logged in account was logged in
+     */
     public void onNewOfferEvent(OfferEvent newOfferEvent) {
         String currentlyLoggedInAccount = plugin.getCurrentlyLoggedInAccount();
         if (currentlyLoggedInAccount != null) {
             newOfferEvent.setMadeBy(currentlyLoggedInAccount);
         }
-        Optional<OfferEvent> screenedOfferEvent = screenOfferEvent(newOfferEvent);
+        plugin.getSlotsPanel().update(newOfferEvent);
 
+        Optional<OfferEvent> screenedOfferEvent = screenOfferEvent(newOfferEvent);
         if (!screenedOfferEvent.isPresent()) {
             return;
         }
-
         OfferEvent finalizedOfferEvent = screenedOfferEvent.get();
 
-        List<FlippingItem> currentlyLoggedInAccountsTrades = plugin.getDataHandler().getAccountData(currentlyLoggedInAccount).getTrades();
+        FlippingItem newItem = createFlippingItem(finalizedOfferEvent.getItemId(), finalizedOfferEvent.getMadeBy());
+
+        worker.execute(() -> {
+            try {
+                processOfferEvent(finalizedOfferEvent, newItem);
+            } catch (Exception e) {
+                log.info("exception while processing offer event {}, e = {}", finalizedOfferEvent, e);
+            }
+        });
+    }
+
+    /**
+     * Runs a task on the worker once the offers queued before it have been applied. Used for anything that has to see
+     * the account data in between offers, such as storing it.
+     */
+    public void runAfterQueuedOffers(Runnable task) {
+        if (worker.isShutdown()) {
+            task.run();
+            return;
+        }
+        worker.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.info("exception while running task after queued offers, e = {}", e);
+            }
+        });
+    }
+
+    /**
+     * Queues offers the user selected in the GE history tab to be added to an account's trades list in one go, after
+     * any offers already queued. The offers are grouped by item so each item is found and updated once, offers that
+     * were already added are skipped, and the items of the offers are made on the client thread before the offers
+     * are queued, in case they don't exist yet. The panels are only marked for rebuilding once all the offers have
+     * been added.
+     * <p>
+     * The tab only lists the account's latest trades, so only the offers that are among the account's latest
+     * offersInTab complete offers are checked when looking for ones that were already added. An older identical
+     * trade can't be a row in the tab and doesn't stop the one the user selected from being added.
+     *
+     * @param displayName          the account the offers were made by
+     * @param offers               the offers scraped from the GE history tab
+     * @param identicalOffersAbove for each offer, how many identical offers are above it in the tab
+     * @param offersInTab          how many offers there are in the tab, selected or not
+     * @param onAdded              run on the worker once the offers have been added
+     */
+    public void addGeTabOffers(String displayName, List<OfferEvent> offers, List<Integer> identicalOffersAbove, int offersInTab, Runnable onAdded) {
+        plugin.getClientThread().invoke(() -> {
+            Map<Integer, FlippingItem> newItems = new HashMap<>();
+            for (OfferEvent offer : offers) {
+                newItems.computeIfAbsent(offer.getItemId(), itemId -> createFlippingItem(itemId, displayName));
+            }
+            runAfterQueuedOffers(() -> addGeTabOffers(displayName, offers, identicalOffersAbove, offersInTab, newItems, onAdded));
+        });
+    }
+
+    /**
+     * The part of {@link #addGeTabOffers(String, List, List, int, Runnable)} that runs on the worker.
+     */
+    private void addGeTabOffers(String displayName, List<OfferEvent> offers, List<Integer> identicalOffersAbove,
+                                int offersInTab, Map<Integer, FlippingItem> newItems, Runnable onAdded) {
+        AccountData accountData = plugin.getDataHandler().viewAccountData(displayName);
+        if (accountData == null) {
+            return;
+        }
+        TradeList trades = accountData.getTrades();
+
+        PriorityQueue<Instant> latestOfferTimes = new PriorityQueue<>(Math.max(1, offersInTab));
+        for (FlippingItem item : trades) {
+            item.getHistory().collectLatestCompleteOfferTimes(latestOfferTimes, offersInTab);
+        }
+        //with fewer offers than the tab has rows, any of them could be in it
+        Instant oldestOfferInTab = latestOfferTimes.size() < offersInTab ? null : latestOfferTimes.peek();
+
+        Map<Integer, List<OfferEvent>> offersByItemId = new LinkedHashMap<>();
+        Map<Integer, List<Integer>> identicalOffersAboveByItemId = new HashMap<>();
+        for (int i = 0; i < offers.size(); i++) {
+            OfferEvent offerToAdd = offers.get(i).clone();
+            offerToAdd.setMadeBy(displayName);
+            offersByItemId.computeIfAbsent(offerToAdd.getItemId(), k -> new ArrayList<>()).add(offerToAdd);
+            identicalOffersAboveByItemId.computeIfAbsent(offerToAdd.getItemId(), k -> new ArrayList<>()).add(identicalOffersAbove.get(i));
+        }
+
+        boolean itemsAddedOrMoved = false;
+        for (Map.Entry<Integer, List<OfferEvent>> entry : offersByItemId.entrySet()) {
+            FlippingItem item = trades.findItem(entry.getKey()).orElse(null);
+            if (item == null) {
+                item = newItems.get(entry.getKey());
+                item.setValidFlippingPanelItem(true);
+                trades.add(0, item);
+                itemsAddedOrMoved = true;
+            } else if (!item.getValidFlippingPanelItem()) {
+                //incase it was deleted from the flipping panel before
+                item.setValidFlippingPanelItem(true);
+                trades.moveToFront(item);
+                itemsAddedOrMoved = true;
+            }
+
+            for (OfferEvent addedOffer : item.addGeTabOffers(entry.getValue(), identicalOffersAboveByItemId.get(entry.getKey()), oldestOfferInTab)) {
+                plugin.getDataHandler().journalOffer(displayName, item, addedOffer);
+                plugin.updateAccountWideList(item, addedOffer.clone());
+            }
+        }
 
-        Optional<FlippingItem> flippingItem = currentlyLoggedInAccountsTrades.stream().filter(item -> item.getItemId() == finalizedOfferEvent.getItemId()).findFirst();
+        if (plugin.getAccountCurrentlyViewed().equals(displayName) ||
+                plugin.getAccountCurrentlyViewed().equals(FlippingPlugin.ACCOUNT_WIDE)) {
+            PanelRebuildScheduler scheduler = plugin.getPanelRebuildScheduler();
+            if (itemsAddedOrMoved) {
+                scheduler.markFlippingPanelDirty();
+            } else {
+                offersByItemId.keySet().forEach(scheduler::markItemDirty);
+            }
+            scheduler.markStatsPanelDirty();
+        }
 
-        updateTradesList(currentlyLoggedInAccountsTrades, flippingItem, finalizedOfferEvent.clone());
+        onAdded.run();
+    }
 
-        plugin.setUpdateSinceLastAccountWideBuild(true);
+    /**
+     * Applies the offers still queued and stops the worker. Called before the account data is stored for the last
+     * time, so no offers are lost.
+     *
+     * @return whether the worker stopped, if it didn't it may still be changing the account data
+     */
+    public boolean shutdown() {
+        worker.shutdown();
+        try {
+            if (!worker.awaitTermination(5, TimeUnit.SECONDS)) {
+                log.info("offers were still being processed after 5 seconds, {} left in the queue", worker.getQueue().size());
+                return false;
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Runs a screened offer event through the rest of the pipeline on the worker thread. The offer's madeBy is used
+     * as the account rather than the currently logged in account, as the account might have logged out since the
+     * offer was queued.
+     *
+     * @param finalizedOfferEvent the offer event that passed screening
+     * @param newItem             the item to add to the trades list if the offer's item isn't in it, made on the
+     *                            client thread.
+     */
+    private void processOfferEvent(OfferEvent finalizedOfferEvent, FlippingItem newItem) {
+        String currentlyLoggedInAccount = finalizedOfferEvent.getMadeBy();
+
+        //only viewing the account data as the offer is persisted through the account's journal in updateTradesList
+        TradeList currentlyLoggedInAccountsTrades = plugin.getDataHandler().viewAccountData(currentlyLoggedInAccount).getTrades();
+
+        Optional<FlippingItem> flippingItem = currentlyLoggedInAccountsTrades.findItem(finalizedOfferEvent.getItemId());
+
+        FlippingItem updatedItem = updateTradesList(currentlyLoggedInAccount, currentlyLoggedInAccountsTrades, flippingItem, newItem, finalizedOfferEvent.clone());
+
+        plugin.updateAccountWideList(updatedItem, finalizedOfferEvent.clone());
 
         rebuildDisplayAfterOfferEvent(flippingItem, finalizedOfferEvent);
     }
@@ -80,6 +265,9 @@ public class NewOfferEventPipelineHandler {
      * In the case when the FlippingItem is present and the offer is not a margin check, we don't have to do a full
      * flipping panel rebuild as we only update the Jlabels that specify the latest buy/sell price. No new panels
      * are created and nothing is reordered, hence a full rebuild would be wasteful.
+     * <p>
+     * The panels aren't updated straight away, the changes are marked on the {@link PanelRebuildScheduler} so the
+     * changes of offers that come in together are applied in one update.
      *
      * @param flippingItem represents whether the FlippingItem existed in the currently logged in account's tradeslist when
      *                     the offer came in.
@@ -87,18 +275,19 @@ public class NewOfferEventPipelineHandler {
      */
     private void rebuildDisplayAfterOfferEvent(Optional<FlippingItem> flippingItem, OfferEvent offerEvent) {
 
-        if (!(plugin.getAccountCurrentlyViewed().equals(plugin.getCurrentlyLoggedInAccount()) ||
+        if (!(plugin.getAccountCurrentlyViewed().equals(offerEvent.getMadeBy()) ||
                 plugin.getAccountCurrentlyViewed().equals(FlippingPlugin.ACCOUNT_WIDE))) {
             return;
         }
 
+        PanelRebuildScheduler scheduler = plugin.getPanelRebuildScheduler();
         if (!flippingItem.isPresent() || flippingItem.isPresent() && offerEvent.isMarginCheck()) {
-            plugin.getFlippingPanel().rebuild(plugin.viewTradesForCurrentView());
+            scheduler.markFlippingPanelDirty();
         } else if (flippingItem.isPresent() && !offerEvent.isMarginCheck()) {
-            plugin.getFlippingPanel().refreshPricesForFlippingItemPanel(flippingItem.get().getItemId());
+            scheduler.markItemDirty(flippingItem.get().getItemId());
         }
 
-        plugin.getStatPanel().rebuild(plugin.viewTradesForCurrentView());
+        scheduler.markStatsPanelDirty();
     }
 
     /**
@@ -107,20 +296,23 @@ public class NewOfferEventPipelineHandler {
      * buying/selling event and a bought/sold event). This method screens out the unwanted events/duplicate
      * events and sets the ticksSinceFirstOffer field correctly on new OfferEvents. This method is also responsible
      * for broadcasting the event to any components that need it, such as the slot panel, the slot timer widgets, etc.
+     * It's called on the client thread, the same thread the slot timers are updated on.
      *
      * @param newOfferEvent event that just occurred
      * @return an optional containing an OfferEvent.
      */
     public Optional<OfferEvent> screenOfferEvent(OfferEvent newOfferEvent) {
-        plugin.getSlotsPanel().update(newOfferEvent);
-        Map<Integer, OfferEvent> lastOfferEventForEachSlot = plugin.getDataHandler().getAccountData(plugin.getCurrentlyLoggedInAccount()).getLastOffers();
-
         if (newOfferEvent.isCausedByEmptySlot()) {
             return Optional.empty();
         }
 
+        //the last offers and slot timers are stored apart from the trades, so the whole account isn't stored for them
+        AccountData accountData = plugin.getDataHandler().viewAccountData(newOfferEvent.getMadeBy());
+        plugin.getDataHandler().markStateAsHavingChanged(newOfferEvent.getMadeBy());
+        Map<Integer, OfferEvent> lastOfferEventForEachSlot = accountData.getLastOffers();
+
         if (newOfferEvent.isStartOfOffer() && !isDuplicateStartOfOfferEvent(newOfferEvent)) {
-            plugin.getDataHandler().getAccountData(plugin.getCurrentlyLoggedInAccount()).getSlotTimers().get(newOfferEvent.getSlot()).setCurrentOffer(newOfferEvent);
+            accountData.getSlotTimers().get(newOfferEvent.getSlot()).setCurrentOffer(newOfferEvent);
             lastOfferEventForEachSlot.put(newOfferEvent.getSlot(), newOfferEvent); //tickSinceFirstOffer is 0 here
             return Optional.empty();
         }
@@ -131,7 +323,7 @@ public class NewOfferEventPipelineHandler {
 
         if (newOfferEvent.getCurrentQuantityInTrade() == 0 && newOfferEvent.isComplete()) {
             lastOfferEventForEachSlot.remove(newOfferEvent.getSlot());
-            plugin.getDataHandler().getAccountData(plugin.getCurrentlyLoggedInAccount()).getSlotTimers().get(newOfferEvent.getSlot()).setCurrentOffer(newOfferEvent);
+            accountData.getSlotTimers().get(newOfferEvent.getSlot()).setCurrentOffer(newOfferEvent);
             return Optional.empty();
         }
 
@@ -154,7 +346,7 @@ public class NewOfferEventPipelineHandler {
 
         newOfferEvent.setTicksSinceFirstOffer(lastOfferEvent);
         lastOfferEventForEachSlot.put(newOfferEvent.getSlot(), newOfferEvent);
-        plugin.getDataHandler().getAccountData(plugin.getCurrentlyLoggedInAccount()).getSlotTimers().get(newOfferEvent.getSlot()).setCurrentOffer(newOfferEvent);
+        accountData.getSlotTimers().get(newOfferEvent.getSlot()).setCurrentOffer(newOfferEvent);
         return Optional.of(newOfferEvent);
     }
 
@@ -166,7 +358,7 @@ public class NewOfferEventPipelineHandler {
      * @return whether or not this trade event is a duplicate "start of trade" event
      */
     private boolean isDuplicateStartOfOfferEvent(OfferEvent offerEvent) {
-        Map<Integer, OfferEvent> loggedInAccsLastOffers = plugin.getDataHandler().viewAccountData(plugin.getCurrentlyLoggedInAccount()).getLastOffers();
+        Map<Integer, OfferEvent> loggedInAccsLastOffers = plugin.getDataHandler().viewAccountData(offerEvent.getMadeBy()).getLastOffers();
         return loggedInAccsLastOffers.containsKey(offerEvent.getSlot()) &&
                 loggedInAccsLastOffers.get(offerEvent.getSlot()).getCurrentQuantityInTrade() == 0 &&
                 loggedInAccsLastOffers.get(offerEvent.getSlot()).getState() == offerEvent.getState();
@@ -187,30 +379,36 @@ public class NewOfferEventPipelineHandler {
     }
 
     /**
-     * This method updates the given trade list in response to an OfferEvent
+     * This method updates the given trade list in response to an OfferEvent and records the offer in the account's
+     * journal.
      *
+     * @param displayName  the account the trades list belongs to
      * @param trades       the trades list to update
      * @param flippingItem the flipping item to be updated in the tradeslist, if it even exists
+     * @param newItem      the flipping item to add if it doesn't, see processOfferEvent
      * @param newOffer     new offer that just came in
+     * @return the flipping item the offer was added to
      */
-    private void updateTradesList(List<FlippingItem> trades, Optional<FlippingItem> flippingItem, OfferEvent newOffer) {
+    private FlippingItem updateTradesList(String displayName, TradeList trades, Optional<FlippingItem> flippingItem, FlippingItem newItem, OfferEvent newOffer) {
         if (flippingItem.isPresent()) {
             FlippingItem item = flippingItem.get();
             if (newOffer.isMarginCheck()) {
-                trades.remove(item);
-                trades.add(0, item);
+                trades.moveToFront(item);
             }
             //if a user buys/sells an item they previously deleted from the flipping panel, show the panel again.
             if (!item.getValidFlippingPanelItem()) {
                 item.setValidFlippingPanelItem(true);
-                trades.remove(item);
-                trades.add(0, item);
+                trades.moveToFront(item);
             }
 
             item.updateHistory(newOffer);
             item.updateLatestProperties(newOffer);
+            plugin.getDataHandler().journalOffer(displayName, item, newOffer);
+            return item;
         } else {
-            addToTradesList(trades, newOffer);
+            FlippingItem item = addToTradesList(trades, newItem, newOffer);
+            plugin.getDataHandler().journalOffer(displayName, item, newOffer);
+            return item;
         }
     }
 
@@ -220,20 +418,27 @@ public class NewOfferEventPipelineHandler {
      * currently present in the trades list.
      *
      * @param tradesList the trades list to be updated
+     * @param newItem    the flipping item made on the client thread
      * @param newOffer   the offer to update the trade list with
+     * @return the flipping item that was added
      */
-    private void addToTradesList(List<FlippingItem> tradesList, OfferEvent newOffer) {
-        int tradeItemId = newOffer.getItemId();
-        String itemName = plugin.getItemManager().getItemComposition(tradeItemId).getName();
-
-        ItemStats itemStats = plugin.getItemManager().getItemStats(tradeItemId, false);
-        int geLimit = itemStats != null ? itemStats.getGeLimit() : 0;
+    private FlippingItem addToTradesList(List<FlippingItem> tradesList, FlippingItem newItem, OfferEvent newOffer) {
+        newItem.setValidFlippingPanelItem(true);
+        newItem.updateHistory(newOffer);
+        newItem.updateLatestProperties(newOffer);
 
-        FlippingItem flippingItem = new FlippingItem(tradeItemId, itemName, geLimit, plugin.getCurrentlyLoggedInAccount());
-        flippingItem.setValidFlippingPanelItem(true);
-        flippingItem.updateHistory(newOffer);
-        flippingItem.updateLatestProperties(newOffer);
+        tradesList.add(0, newItem);
+        return newItem;
+    }
 
-        tradesList.add(0, flippingItem);
+    /**
+     * Makes a FlippingItem for an item that isn't in a trades list yet. Has to be called on the client thread as it
+     * uses the item manager.
+     */
+    private FlippingItem createFlippingItem(int itemId, String madeBy) {
+        String itemName = plugin.getItemManager().getItemComposition(itemId).getName();
+        ItemStats itemStats = plugin.getItemManager().getItemStats(itemId, false);
+        int geLimit = itemStats != null ? itemStats.getGeLimit() : 0;
+        return new FlippingItem(itemId, itemName, geLimit, madeBy);
     }
 }
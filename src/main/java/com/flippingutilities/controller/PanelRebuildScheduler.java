@@ -0,0 +1,94 @@
+package com.flippingutilities.controller;
+
+import javax.swing.SwingUtilities;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the changes offer events make to the display and applies them together. When several offers come in at
+ * once, such as when all the slots fill on login, the panels are updated once for all of them rather than being
+ * rebuilt for each one. Changes are marked as they happen and a single update is scheduled for a short while after
+ * the first one; anything marked before it runs is folded into it.
+ */
+public class PanelRebuildScheduler {
+    //long enough to catch the offers of the same game tick, short enough that it isn't noticeable
+    private static final int COALESCE_WINDOW_MS = 100;
+
+    private final FlippingPlugin plugin;
+    private final ScheduledExecutorService executor;
+
+    //all guarded by this
+    private boolean updateScheduled;
+    private boolean flippingPanelDirty;
+    private boolean statsPanelDirty;
+    //items whose flipping panel prices changed, only needed when the flipping panel isn't being rebuilt anyway
+    private Set<Integer> dirtyItemIds = new HashSet<>();
+
+    PanelRebuildScheduler(FlippingPlugin plugin, ScheduledExecutorService executor) {
+        this.plugin = plugin;
+        this.executor = executor;
+    }
+
+    /**
+     * Marks the flipping panel as needing a rebuild, for when items were added or reordered.
+     */
+    public synchronized void markFlippingPanelDirty() {
+        flippingPanelDirty = true;
+        scheduleUpdate();
+    }
+
+    /**
+     * Marks the prices shown for an item on the flipping panel as needing a refresh.
+     */
+    public synchronized void markItemDirty(int itemId) {
+        dirtyItemIds.add(itemId);
+        scheduleUpdate();
+    }
+
+    public synchronized void markStatsPanelDirty() {
+        statsPanelDirty = true;
+        scheduleUpdate();
+    }
+
+    private void scheduleUpdate() {
+        if (updateScheduled) {
+            return;
+        }
+        updateScheduled = true;
+        //run on the offer worker so the update sees the trades lists after all the offers queued before it
+        executor.schedule(() -> plugin.getNewOfferEventPipelineHandler().runAfterQueuedOffers(this::update),
+                COALESCE_WINDOW_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void update() {
+        boolean rebuildFlippingPanel;
+        boolean rebuildStatsPanel;
+        Set<Integer> itemIds;
+        synchronized (this) {
+            rebuildFlippingPanel = flippingPanelDirty;
+            rebuildStatsPanel = statsPanelDirty;
+            itemIds = dirtyItemIds;
+            flippingPanelDirty = false;
+            statsPanelDirty = false;
+            dirtyItemIds = new HashSet<>();
+            updateScheduled = false;
+        }
+
+        //an offer replaces the merged item of the account wide list, so its panel has to be made again for the new one
+        if (!itemIds.isEmpty() && plugin.getAccountCurrentlyViewed().equals(FlippingPlugin.ACCOUNT_WIDE)) {
+            rebuildFlippingPanel = true;
+        }
+
+        if (rebuildFlippingPanel) {
+            plugin.getFlippingPanel().rebuild(plugin.viewTradesForCurrentView());
+        } else if (!itemIds.isEmpty()) {
+            SwingUtilities.invokeLater(() -> itemIds.forEach(plugin.getFlippingPanel()::refreshPricesForFlippingItemPanel));
+        }
+
+        if (rebuildStatsPanel) {
+            plugin.getStatPanel().rebuild(plugin.viewTradesForCurrentView());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.flippingutilities.controller;
+
+import com.flippingutilities.model.AccountData;
+import com.flippingutilities.ui.widgets.TradeActivityTimer;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.swing.SwingUtilities;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives every display that counts time, such as the session time, how long ago an item was flipped, ge limit resets
+ * and the slot timers, from one tick a second. Each tick does at most one task on the EDT and one on the client
+ * thread, and panels that aren't showing are skipped, so the timers cost next to nothing while the plugin's panel is
+ * closed.
+ */
+@Slf4j
+public class UiTickScheduler {
+    private static final int TICK_MS = 1000;
+
+    private final FlippingPlugin plugin;
+    private final ScheduledExecutorService executor;
+
+    private ScheduledFuture<?> tickTask;
+
+    UiTickScheduler(FlippingPlugin plugin, ScheduledExecutorService executor) {
+        this.plugin = plugin;
+        this.executor = executor;
+    }
+
+    public synchronized void start(int msStartDelay) {
+        if (tickTask != null) {
+            return;
+        }
+        tickTask = executor.scheduleAtFixedRate(this::tick, msStartDelay, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (tickTask != null) {
+            tickTask.cancel(true);
+            tickTask = null;
+        }
+    }
+
+    private void tick() {
+        //an exception escaping would stop the ticks for good, so every part is guarded
+        try {
+            plugin.updateSessionTime();
+        } catch (Exception e) {
+            log.info("exception when updating the session time, e = {}", e);
+        }
+
+        SwingUtilities.invokeLater(this::updatePanels);
+
+        if (plugin.getCurrentlyLoggedInAccount() != null && plugin.getConfig().slotTimersEnabled()) {
+            plugin.getClientThread().invokeLater(this::updateSlotTimers);
+        }
+    }
+
+    private void updatePanels() {
+        try {
+            if (plugin.getFlippingPanel().isShowing()) {
+                plugin.getFlippingPanel().updateTimerDisplays();
+            }
+            if (plugin.getStatPanel().isShowing()) {
+                plugin.getStatPanel().updateTimeDisplay();
+            }
+        } catch (Exception e) {
+            log.info("exception when updating the time displays of the panels, e = {}", e);
+        }
+    }
+
+    /**
+     * Updates the timers on the slot widgets, which has to be done on the client thread, and then hands the times
+     * over to the slots panel in one go.
+     */
+    private void updateSlotTimers() {
+        String displayName = plugin.getCurrentlyLoggedInAccount();
+        AccountData accountData = displayName == null ? null : plugin.getDataHandler().viewAccountData(displayName);
+        if (accountData == null || !plugin.getConfig().slotTimersEnabled()) {
+            return;
+        }
+
+        List<TradeActivityTimer> slotTimers = accountData.getSlotTimers();
+        String[] times = new String[slotTimers.size()];
+        for (int i = 0; i < slotTimers.size(); i++) {
+            TradeActivityTimer slotTimer = slotTimers.get(i);
+            try {
+                slotTimer.updateTimerDisplay();
+                times[i] = slotTimer.createFormattedTimeString();
+            } catch (Exception e) {
+                log.info("exception when trying to update timer. e: {}", e);
+            }
+        }
+
+        SwingUtilities.invokeLater(() -> {
+            if (!plugin.getSlotsPanel().isShowing()) {
+                return;
+            }
+            for (int i = 0; i < times.length; i++) {
+                plugin.getSlotsPanel().updateTimerDisplays(slotTimers.get(i).getSlotIndex(), times[i]);
+            }
+        });
+    }
+}
@@ -0,0 +1,139 @@
+package com.flippingutilities.db;
+
+import com.flippingutilities.model.OfferEvent;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import net.runelite.api.GrandExchangeOfferState;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Offers make up nearly all of a trade file, so they get a hand written adapter instead of going through gson's
+ * reflection. The keys are the ones from the @SerializedName annotations on OfferEvent, so the format is unchanged.
+ * Any new persisted field on OfferEvent has to be added here as well.
+ */
+public class OfferEventTypeAdapter extends TypeAdapter<OfferEvent>
+{
+	private final InstantTypeAdapter instantTypeAdapter = new InstantTypeAdapter();
+
+	@Override
+	public void write(JsonWriter out, OfferEvent offer) throws IOException
+	{
+		if (offer == null)
+		{
+			out.nullValue();
+			return;
+		}
+		out.beginObject();
+		out.name("b").value(offer.isBuy());
+		out.name("id").value(offer.getItemId());
+		out.name("cQIT").value(offer.getCurrentQuantityInTrade());
+		out.name("p").value(offer.getPrice());
+		if (offer.getTime() != null)
+		{
+			out.name("t");
+			instantTypeAdapter.write(out, offer.getTime());
+		}
+		out.name("s").value(offer.getSlot());
+		if (offer.getState() != null)
+		{
+			out.name("st").value(offer.getState().name());
+		}
+		out.name("tAA").value(offer.getTickArrivedAt());
+		out.name("tSFO").value(offer.getTicksSinceFirstOffer());
+		out.name("tQIT").value(offer.getTotalQuantityInTrade());
+		out.name("vSQ").value(offer.isValidOfferEvent());
+		out.endObject();
+	}
+
+	@Override
+	public OfferEvent read(JsonReader in) throws IOException
+	{
+		if (in.peek() == JsonToken.NULL)
+		{
+			in.nextNull();
+			return null;
+		}
+
+		boolean buy = false;
+		int itemId = 0;
+		int currentQuantityInTrade = 0;
+		int price = 0;
+		Instant time = null;
+		int slot = 0;
+		GrandExchangeOfferState state = null;
+		int tickArrivedAt = 0;
+		int ticksSinceFirstOffer = 0;
+		int totalQuantityInTrade = 0;
+		boolean validOfferEvent = false;
+
+		in.beginObject();
+		while (in.hasNext())
+		{
+			String name = in.nextName();
+			if (in.peek() == JsonToken.NULL)
+			{
+				in.nextNull();
+				continue;
+			}
+			switch (name)
+			{
+				case "b":
+					buy = in.nextBoolean();
+					break;
+				case "id":
+					itemId = in.nextInt();
+					break;
+				case "cQIT":
+					currentQuantityInTrade = in.nextInt();
+					break;
+				case "p":
+					price = in.nextInt();
+					break;
+				case "t":
+					time = instantTypeAdapter.read(in);
+					break;
+				case "s":
+					slot = in.nextInt();
+					break;
+				case "st":
+					state = readState(in.nextString());
+					break;
+				case "tAA":
+					tickArrivedAt = in.nextInt();
+					break;
+				case "tSFO":
+					ticksSinceFirstOffer = in.nextInt();
+					break;
+				case "tQIT":
+					totalQuantityInTrade = in.nextInt();
+					break;
+				case "vSQ":
+					validOfferEvent = in.nextBoolean();
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+		in.endObject();
+
+		return new OfferEvent(buy, itemId, currentQuantityInTrade, price, time, slot, state, tickArrivedAt,
+			ticksSinceFirstOffer, totalQuantityInTrade, validOfferEvent, null, false, null, 0);
+	}
+
+	//gson's enum adapter reads unknown constants as null rather than failing
+	private static GrandExchangeOfferState readState(String name)
+	{
+		try
+		{
+			return GrandExchangeOfferState.valueOf(name);
+		}
+		catch (IllegalArgumentException e)
+		{
+			return null;
+		}
+	}
+}
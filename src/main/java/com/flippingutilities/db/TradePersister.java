@@ -28,25 +28,52 @@ package com.flippingutilities.db;
 
 import com.flippingutilities.controller.FlippingPlugin;
 import com.flippingutilities.model.AccountData;
+import com.flippingutilities.model.AccountHeader;
+import com.flippingutilities.model.AccountState;
 import com.flippingutilities.model.AccountWideData;
 import com.flippingutilities.model.FlippingItem;
 import com.flippingutilities.model.OfferEvent;
 import com.flippingutilities.ui.uiutilities.TimeFormatters;
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.annotations.SerializedName;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.client.RuneLite;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 
+import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
-import java.util.HashMap;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -63,6 +90,24 @@ public class TradePersister
 
 	public static final File OLD_FILE = new File(PARENT_DIRECTORY, "trades.json");
 
+	//each account's journal is stored next to its snapshot as {displayName}.journal
+	public static final String JOURNAL_EXTENSION = ".journal";
+
+	//each account's frequently changing state is stored next to its snapshot as {displayName}.state
+	public static final String STATE_EXTENSION = ".state";
+
+	//files are written under this extension first and then renamed, see writeAtomically
+	public static final String TEMP_EXTENSION = ".tmp";
+
+	//upper bound on how many account files are decoded at the same time at startup
+	private static final int MAX_LOADER_THREADS = 4;
+
+	//gson instances are thread safe and cache their adapters, so one is shared instead of creating one per read/write
+	private static final Gson GSON = new GsonBuilder()
+		.registerTypeAdapter(Instant.class, new InstantTypeAdapter())
+		.registerTypeAdapter(OfferEvent.class, new OfferEventTypeAdapter())
+		.create();
+
 	/**
 	 * Creates flipping directory if it doesn't exist and partitions trades.json into individual files
 	 * for each account, if it exists.
@@ -102,13 +147,10 @@ public class TradePersister
 	 */
 	private static void partitionOldFile(File f) throws IOException
 	{
-		String tradesJson = new String(Files.readAllBytes(OLD_FILE.toPath()));
-
-		final Gson gson = new Gson();
 		Type type = new TypeToken<Map<String, AccountData>>()
 		{
 		}.getType();
-		Map<String, AccountData> accountData = gson.fromJson(tradesJson, type);
+		Map<String, AccountData> accountData = readJson(OLD_FILE, type);
 
 		//they have no data to partition
 		if (!accountData.containsKey(FlippingPlugin.ACCOUNT_WIDE))
@@ -155,66 +197,301 @@ public class TradePersister
 	}
 
 	/**
-	 * loads each account's data from the parent directory located at {user's home directory}/.runelite/flipping/
-	 * Each account's data is stored in separate file in that directory and is named {displayName}.json
+	 * Finds the display names of every account that has data in the parent directory located at
+	 * {user's home directory}/.runelite/flipping/. Each account's data is stored in separate file in that directory
+	 * and is named {displayName}.json, and possibly a journal named {displayName}.journal.
 	 *
-	 * @return a map of display name to that account's data
-	 * @throws IOException handled in FlippingPlugin
+	 * @return the display names, in alphabetical order
 	 */
-	public static Map<String, AccountData> loadAllAccounts() throws IOException
+	public static List<String> getStoredDisplayNames()
 	{
-		Map<String, AccountData> accountsData = new HashMap<>();
+		List<String> displayNames = new ArrayList<>();
 		for (File f : PARENT_DIRECTORY.listFiles())
 		{
-			if (f.getName().equals("accountwide.json")) {
+			String displayName = f.getName().split("\\.")[0];
+			//an account that hasn't had a snapshot stored yet can still have a journal
+			boolean isJournalWithoutSnapshot = f.getName().endsWith(JOURNAL_EXTENSION)
+				&& !new File(PARENT_DIRECTORY, displayName + ".json").exists();
+			if (f.getName().equals("accountwide.json") || !(f.getName().endsWith(".json") || isJournalWithoutSnapshot))
+			{
 				continue;
 			}
-			String displayName = f.getName().split("\\.")[0];
-			log.info("loading data for {}", displayName);
-			AccountData accountData = loadFromFile(f);
-			if (accountData == null)
+			displayNames.add(displayName);
+		}
+		Collections.sort(displayNames);
+		return displayNames;
+	}
+
+	/**
+	 * loads the data of the given accounts. Any offers in an account's journal that aren't part of its file yet are
+	 * replayed on top of it.
+	 * <p>
+	 * The accounts are loaded concurrently on a small pool of threads, as decoding each file is independent of the
+	 * others.
+	 *
+	 * @param displayNames the accounts to load
+	 * @param afterLoad    run on each account's data on the thread that loaded it, for any preparation that doesn't
+	 *                     need to happen on the client thread
+	 * @return a map of display name to that account's data, in the same order as the given display names
+	 * @throws IOException handled in FlippingPlugin
+	 */
+	public static Map<String, AccountData> loadAccounts(List<String> displayNames, Consumer<AccountData> afterLoad) throws IOException
+	{
+		Map<String, AccountData> accountsData = new LinkedHashMap<>();
+		if (displayNames.isEmpty())
+		{
+			return accountsData;
+		}
+
+		int threads = Math.min(displayNames.size(), Math.min(MAX_LOADER_THREADS, Runtime.getRuntime().availableProcessors()));
+		ExecutorService loaders = Executors.newFixedThreadPool(threads);
+		try
+		{
+			Map<String, Future<AccountData>> loadingAccounts = new LinkedHashMap<>();
+			for (String displayName : displayNames)
 			{
-				log.info("data for {} is null for some reason, setting it to a empty AccountData object", displayName);
-				accountData = new AccountData();
+				loadingAccounts.put(displayName, loaders.submit(() -> {
+					AccountData accountData = loadAccount(displayName);
+					afterLoad.accept(accountData);
+					return accountData;
+				}));
 			}
 
-			accountsData.put(displayName, accountData);
+			//merged in the order they were asked for, regardless of which finishes loading first
+			for (Map.Entry<String, Future<AccountData>> loadingAccount : loadingAccounts.entrySet())
+			{
+				accountsData.put(loadingAccount.getKey(), waitForAccount(loadingAccount.getValue()));
+			}
+		}
+		finally
+		{
+			loaders.shutdownNow();
 		}
 
 		return accountsData;
 	}
 
+	/**
+	 * Reads only the header at the start of an account's file, without decoding the rest of it.
+	 *
+	 * @param displayName display name of the account
+	 * @return the account's header, or null if it doesn't have a file yet or the file was stored before headers existed
+	 * @throws IOException
+	 */
+	public static AccountHeader loadHeader(String displayName) throws IOException
+	{
+		return loadHeader(new File(PARENT_DIRECTORY, displayName + ".json"), displayName);
+	}
+
+	/**
+	 * Same as {@link #loadHeader(String)}, for an account file in any directory. The header is normally the first
+	 * field, so only the start of the file is read. The fields before it are skipped rather than decoded if it isn't,
+	 * so the header is found regardless of the order the fields were written in.
+	 */
+	static AccountHeader loadHeader(File accountFile, String displayName) throws IOException
+	{
+		if (!accountFile.exists())
+		{
+			return null;
+		}
+
+		AccountHeader header = null;
+		try (JsonReader reader = new JsonReader(Files.newBufferedReader(accountFile.toPath(), Charset.defaultCharset())))
+		{
+			if (reader.peek() != JsonToken.BEGIN_OBJECT)
+			{
+				return null;
+			}
+			reader.beginObject();
+			while (reader.hasNext())
+			{
+				if (reader.nextName().equals("h"))
+				{
+					header = GSON.fromJson(reader, AccountHeader.class);
+					break;
+				}
+				reader.skipValue();
+			}
+		}
+		catch (EOFException e)
+		{
+			//an empty file has no header
+			return null;
+		}
+
+		if (header != null)
+		{
+			header.setDisplayName(displayName);
+			header.setLastModified(accountFile.lastModified());
+		}
+		return header;
+	}
+
+	private static AccountData waitForAccount(Future<AccountData> loadingAccount) throws IOException
+	{
+		try
+		{
+			return loadingAccount.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while loading accounts", e);
+		}
+		catch (ExecutionException e)
+		{
+			//rethrow what loading the account threw, the same as if it had been loaded on this thread
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+			{
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException)
+			{
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error)
+			{
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
 	public static AccountData loadAccount(String displayName) throws IOException
 	{
 		log.info("loading data for {}", displayName);
 		File accountFile = new File(PARENT_DIRECTORY, displayName + ".json");
-		AccountData accountData = loadFromFile(accountFile);
+		AccountData accountData = accountFile.exists() ? loadFromFile(accountFile) : null;
 		if (accountData == null)
 		{
 			log.info("data for {} is null for some reason, setting it to a empty AccountData object", displayName);
 			accountData = new AccountData();
 		}
+		AccountState state = loadState(new File(PARENT_DIRECTORY, displayName + STATE_EXTENSION), accountData);
+		replayJournal(new File(PARENT_DIRECTORY, displayName + JOURNAL_EXTENSION), displayName, accountData, state);
 		return accountData;
 	}
 
 	private static AccountData loadFromFile(File f) throws IOException
 	{
-		String accountDataJson = new String(Files.readAllBytes(f.toPath()));
-		final Gson gson = new Gson();
-		Type type = new TypeToken<AccountData>()
+		return readJson(f, AccountData.class);
+	}
+
+	/**
+	 * Decodes a file straight from disk as it's being read, so the file's contents never have to be held in memory
+	 * all at once before being turned into objects.
+	 *
+	 * @param f    the file to read
+	 * @param type the type of the file's contents
+	 * @return the decoded contents, or null if the file is empty
+	 * @throws IOException
+	 */
+	private static <T> T readJson(File f, Type type) throws IOException
+	{
+		//files have always been written with the default charset
+		try (JsonReader reader = new JsonReader(Files.newBufferedReader(f.toPath(), Charset.defaultCharset())))
 		{
-		}.getType();
-		AccountData accountData = gson.fromJson(accountDataJson, type);
-		return accountData;
+			return GSON.fromJson(reader, type);
+		}
+	}
+
+	/**
+	 * Reads an account's state file, if it was stored after the account's snapshot.
+	 *
+	 * @param stateFile   the account's state file
+	 * @param accountData the account's data as loaded from its snapshot
+	 * @return the state, or null if there isn't one newer than the snapshot
+	 */
+	static AccountState loadState(File stateFile, AccountData accountData)
+	{
+		if (!stateFile.exists())
+		{
+			return null;
+		}
+		try
+		{
+			AccountState state = readJson(stateFile, AccountState.class);
+			return state != null && state.getSequence() > accountData.getStateSequence() ? state : null;
+		}
+		catch (IOException | JsonParseException e)
+		{
+			//the state is only a convenience, the snapshot still has an older copy of it
+			log.info("couldn't read {}, using the state in the snapshot instead, e = {}", stateFile.getName(), e);
+			return null;
+		}
+	}
+
+	/**
+	 * Applies the offers recorded in an account's journal on top of the account's last snapshot. Entries with a
+	 * sequence number the snapshot already covers are skipped, so a journal that wasn't cleared after a snapshot was
+	 * stored (the client died in between) doesn't add the same offers twice.
+	 * <p>
+	 * If the account has a state stored after the snapshot, it's applied once the entries it was made after have been
+	 * replayed, so only the entries after it change the last offers again.
+	 *
+	 * @param journalFile the account's journal
+	 * @param displayName display name of the account the journal belongs to
+	 * @param accountData the account's data as loaded from its snapshot
+	 * @param state       the account's state, or null if the snapshot has the latest one
+	 */
+	static void replayJournal(File journalFile, String displayName, AccountData accountData, AccountState state) throws IOException
+	{
+		if (!journalFile.exists())
+		{
+			if (state != null)
+			{
+				accountData.applyState(state);
+			}
+			return;
+		}
+
+		int replayedOffers = 0;
+		try (BufferedReader reader = Files.newBufferedReader(journalFile.toPath(), StandardCharsets.UTF_8))
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				JournalEntry entry;
+				try
+				{
+					entry = GSON.fromJson(line, JournalEntry.class);
+				}
+				catch (JsonSyntaxException e)
+				{
+					//the last line can be cut off if the client died while it was being written
+					log.info("skipping unreadable journal entry for {}", displayName);
+					continue;
+				}
+
+				if (entry == null || entry.getOffer() == null || entry.getSequence() <= accountData.getJournalSequence())
+				{
+					continue;
+				}
+
+				if (state != null && entry.getSequence() > state.getJournalSequence())
+				{
+					accountData.applyState(state);
+					state = null;
+				}
+
+				accountData.replayOffer(displayName, entry.getItemName(), entry.getOffer());
+				accountData.setJournalSequence(entry.getSequence());
+				replayedOffers++;
+			}
+		}
+		if (state != null)
+		{
+			accountData.applyState(state);
+		}
+		accountData.setJournaledOffers(replayedOffers);
+		log.info("replayed {} journaled offers for {}", replayedOffers, displayName);
 	}
 
 	public static AccountWideData loadAccountWideData() throws IOException {
 		File accountFile = new File(PARENT_DIRECTORY, "accountwide.json");
 		if (accountFile.exists()){
-			String accountWideDataJson = new String(Files.readAllBytes(accountFile.toPath()));
-			final Gson gson = new Gson();
-			Type type = new TypeToken<AccountWideData>(){}.getType();
-			return gson.fromJson(accountWideDataJson, type);
+			return readJson(accountFile, AccountWideData.class);
 		}
 		else {
 			return new AccountWideData();
@@ -229,12 +506,170 @@ public class TradePersister
 	 * @throws IOException
 	 */
 	public static void storeTrades(String displayName, Object data) throws IOException
+	{
+		storeSerializedTrades(displayName, serialize(data));
+	}
+
+	/**
+	 * Same as storeTrades, but for data that has already been serialized. This lets the data be serialized on the
+	 * thread that owns it while the actual writing happens elsewhere.
+	 *
+	 * @param displayName display name of the account the data is associated with
+	 * @param json        the serialized data of that account
+	 * @throws IOException
+	 */
+	public static void storeSerializedTrades(String displayName, String json) throws IOException
 	{
 		log.info("storing trades for {}", displayName);
 		File accountFile = new File(PARENT_DIRECTORY, displayName + ".json");
-		final Gson gson = new Gson();
-		final String json = gson.toJson(data);
-		Files.write(accountFile.toPath(), json.getBytes());
+		writeAtomically(accountFile, json.getBytes());
+	}
+
+	/**
+	 * Stores the frequently changing state of an account in
+	 * {user's home directory}/.runelite/flipping/{account's display name}.state
+	 *
+	 * @param displayName display name of the account the state belongs to
+	 * @param json        the serialized AccountState of that account
+	 * @throws IOException
+	 */
+	public static void storeAccountState(String displayName, String json) throws IOException
+	{
+		writeAtomically(new File(PARENT_DIRECTORY, displayName + STATE_EXTENSION), json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public static String serialize(Object data)
+	{
+		return GSON.toJson(data);
+	}
+
+	/**
+	 * Stores a full snapshot of an account and drops the entries in its journal that are now part of the snapshot.
+	 * The snapshot is written first so a failure in between can only leave behind journal entries the snapshot
+	 * already covers, which are skipped on load.
+	 *
+	 * @param displayName     display name of the account the data is associated with
+	 * @param json            the serialized data of the account
+	 * @param journalSequence the journal sequence number the serialized data contains
+	 * @throws IOException
+	 */
+	public static void checkpointAccount(String displayName, String json, long journalSequence) throws IOException
+	{
+		storeSerializedTrades(displayName, json);
+		compactJournal(new File(PARENT_DIRECTORY, displayName + JOURNAL_EXTENSION), journalSequence);
+	}
+
+	/**
+	 * Removes the entries of an account's journal that have a sequence number of at most the given one. Entries
+	 * after it can have been journaled while the snapshot was waiting to be written, so they are kept.
+	 *
+	 * @param journalFile     the account's journal
+	 * @param journalSequence sequence number of the last entry the account's snapshot contains
+	 * @throws IOException
+	 */
+	static void compactJournal(File journalFile, long journalSequence) throws IOException
+	{
+		if (!journalFile.exists())
+		{
+			return;
+		}
+
+		StringBuilder remainingEntries = new StringBuilder();
+		for (String line : Files.readAllLines(journalFile.toPath(), StandardCharsets.UTF_8))
+		{
+			try
+			{
+				JournalEntry entry = GSON.fromJson(line, JournalEntry.class);
+				if (entry != null && entry.getSequence() > journalSequence)
+				{
+					remainingEntries.append(line).append("\n");
+				}
+			}
+			catch (JsonSyntaxException e)
+			{
+				log.info("dropping unreadable journal entry in {}", journalFile.getName());
+			}
+		}
+
+		if (remainingEntries.length() == 0)
+		{
+			Files.deleteIfExists(journalFile.toPath());
+		}
+		else
+		{
+			writeAtomically(journalFile, remainingEntries.toString().getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	/**
+	 * Creates the line an offer is stored as in an account's journal.
+	 *
+	 * @param sequence the position of this offer in the account's journal
+	 * @param itemName name of the item, needed if the offer created the item's FlippingItem
+	 * @param offer    the offer that was just added to the account's trades
+	 * @return the journal entry, without a trailing newline
+	 */
+	public static String toJournalEntry(long sequence, String itemName, OfferEvent offer)
+	{
+		return GSON.toJson(new JournalEntry(sequence, itemName, offer));
+	}
+
+	/**
+	 * Appends entries to the journal of an account located at
+	 * {user's home directory}/.runelite/flipping/{account's display name}.journal and forces them to disk. Each entry
+	 * is one line, so storing an offer costs the same regardless of how much history the account has.
+	 *
+	 * @param displayName display name of the account the entries belong to
+	 * @param entries     journal entries created by toJournalEntry
+	 * @throws IOException
+	 */
+	public static void appendToJournal(String displayName, List<String> entries) throws IOException
+	{
+		StringBuilder sb = new StringBuilder();
+		entries.forEach(entry -> sb.append(entry).append("\n"));
+		File journalFile = new File(PARENT_DIRECTORY, displayName + JOURNAL_EXTENSION);
+		try (FileChannel channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND))
+		{
+			writeFully(channel, sb.toString().getBytes(StandardCharsets.UTF_8));
+			channel.force(false);
+		}
+	}
+
+	/**
+	 * Writes a file so that it either has its old contents or all of its new contents, even if the client dies while
+	 * it's being written. The bytes go to a temporary file which is forced to disk and then renamed over the file.
+	 *
+	 * @param file  the file to write
+	 * @param bytes the file's new contents
+	 * @throws IOException
+	 */
+	static void writeAtomically(File file, byte[] bytes) throws IOException
+	{
+		File tempFile = new File(file.getParentFile(), file.getName() + TEMP_EXTENSION);
+		try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			writeFully(channel, bytes);
+			channel.force(true);
+		}
+
+		try
+		{
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (AtomicMoveNotSupportedException e)
+		{
+			log.info("atomic move not supported, falling back to a regular move for {}", file.getName());
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static void writeFully(FileChannel channel, byte[] bytes) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
 	}
 
 	public static long lastModified(String fileName)
@@ -281,4 +716,19 @@ public class TradePersister
 		}
 		csvWriter.close();
 	}
+
+	/**
+	 * A single line in an account's journal.
+	 */
+	@Getter
+	@AllArgsConstructor
+	private static class JournalEntry
+	{
+		@SerializedName("seq")
+		private long sequence;
+		@SerializedName("name")
+		private String itemName;
+		@SerializedName("o")
+		private OfferEvent offer;
+	}
 }
@@ -28,6 +28,7 @@ package com.flippingutilities.model;
 
 import com.flippingutilities.controller.FlippingPlugin;
 import com.flippingutilities.ui.widgets.TradeActivityTimer;
+import com.google.gson.annotations.SerializedName;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.client.game.ItemManager;
@@ -38,18 +39,36 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 @Slf4j
 @Data
 public class AccountData
 {
-	private Map<Integer, OfferEvent> lastOffers = new HashMap<>();
-	private List<FlippingItem> trades = new ArrayList<>();
+	//kept as the first field so the header is at the start of the file and can be read without reading the trades,
+	//see TradePersister#loadHeader
+	@SerializedName("h")
+	private AccountHeader header;
+	//changed on the client thread while offers are screened and read when the account is stored, so it's concurrent
+	private ConcurrentMap<Integer, OfferEvent> lastOffers = new ConcurrentHashMap<>();
+	private TradeList trades = new TradeList();
 	private Instant sessionStartTime = Instant.now();
 	private Duration accumulatedSessionTime = Duration.ZERO;
 	private Instant lastSessionTimeUpdate;
 	private List<TradeActivityTimer> slotTimers;
+	//sequence number of the last journaled offer this data contains. See TradePersister#appendToJournal
+	private long journalSequence;
+	//how many offers have been journaled since this account's last snapshot was stored.
+	private transient int journaledOffers;
+	//sequence number of the last AccountState stored for this account. See TradePersister#storeAccountState
+	private long stateSequence;
+
+	public void setTrades(List<FlippingItem> trades)
+	{
+		this.trades = trades instanceof TradeList ? (TradeList) trades : new TradeList(trades);
+	}
 
 	/**
 	 * Resets all session related data associated with an account. This is called when the plugin first starts
@@ -68,16 +87,22 @@ public class AccountData
 	 * that the FlippingItems have their non persisted fields set from history.
 	 */
 	public void prepareForUse(FlippingPlugin plugin)
+	{
+		sanitize();
+		prepareSlotTimers(plugin);
+		prepareClientDependentFields(plugin, trades);
+	}
+
+	/**
+	 * The part of prepareForUse that only touches this account's own data. It doesn't need anything from the
+	 * client, so it can run on any thread, such as while accounts are being loaded in parallel.
+	 */
+	public void sanitize()
 	{
 		for (FlippingItem item : trades)
 		{
-			//in case ge limits have been updated
-			int tradeItemId = item.getItemId();
-			ItemStats itemStats = plugin.getItemManager().getItemStats(tradeItemId, false);
-			int geLimit = itemStats != null ? itemStats.getGeLimit() : 0;
-
+			item.getHistory().ensureTimeOrdered();
 			item.setOfferMadeBy();
-			item.setTotalGELimit(geLimit);
 			item.syncState();
 			//when this change was made the field will not exist and will be null
 			if (item.getValidFlippingPanelItem() == null)
@@ -85,7 +110,14 @@ public class AccountData
 				item.setValidFlippingPanelItem(true);
 			}
 		}
+	}
 
+	/**
+	 * The part of prepareForUse that gives the slot timers the plugin and client, making them if there aren't any. It
+	 * doesn't call into the client, so it can run on any thread.
+	 */
+	public void prepareSlotTimers(FlippingPlugin plugin)
+	{
 		if (slotTimers == null)
 		{
 			setSlotTimers(setupSlotTimers(plugin));
@@ -99,6 +131,114 @@ public class AccountData
 		}
 	}
 
+	/**
+	 * The part of prepareForUse that needs the item manager, so it should be run on the client thread. The items are
+	 * passed in rather than read from the trades list, so an account that's being loaded on another thread can hand
+	 * over a copy of them before the offer worker starts changing the list.
+	 *
+	 * @param items the items to update, from this account's trades list
+	 */
+	public static void prepareClientDependentFields(FlippingPlugin plugin, List<FlippingItem> items)
+	{
+		for (FlippingItem item : items)
+		{
+			//in case ge limits have been updated
+			int tradeItemId = item.getItemId();
+			ItemStats itemStats = plugin.getItemManager().getItemStats(tradeItemId, false);
+			int geLimit = itemStats != null ? itemStats.getGeLimit() : 0;
+			item.setTotalGELimit(geLimit);
+		}
+	}
+
+	/**
+	 * Adds an offer read back from this account's journal to the trades list, the same way the offer was added to
+	 * the trades list when it first came in.
+	 *
+	 * @param displayName display name of this account
+	 * @param itemName    name of the offer's item, used if the offer has no FlippingItem yet
+	 * @param offer       the journaled offer
+	 */
+	public void replayOffer(String displayName, String itemName, OfferEvent offer)
+	{
+		Optional<FlippingItem> flippingItem = trades.findItem(offer.getItemId());
+		FlippingItem item;
+		if (flippingItem.isPresent())
+		{
+			item = flippingItem.get();
+			if (offer.isMarginCheck() || Boolean.FALSE.equals(item.getValidFlippingPanelItem()))
+			{
+				item.setValidFlippingPanelItem(true);
+				trades.moveToFront(item);
+			}
+		}
+		else
+		{
+			item = new FlippingItem(offer.getItemId(), itemName, 0, displayName);
+			item.setValidFlippingPanelItem(true);
+			trades.add(0, item);
+		}
+
+		item.updateHistory(offer);
+		item.updateLatestProperties(offer);
+		if (offer.getSlot() != -1)
+		{
+			lastOffers.put(offer.getSlot(), offer.clone());
+		}
+	}
+
+	/**
+	 * Copies the parts of this account that change all the time, to be stored on their own.
+	 *
+	 * @param sequence the sequence number the state is stored under
+	 */
+	public AccountState createState(long sequence)
+	{
+		return new AccountState(sequence, journalSequence, new HashMap<>(lastOffers), sessionStartTime,
+			accumulatedSessionTime, lastSessionTimeUpdate, slotTimers == null ? null : new ArrayList<>(slotTimers));
+	}
+
+	/**
+	 * Applies a state that was stored after this account's file, see createState.
+	 */
+	public void applyState(AccountState state)
+	{
+		if (state.getLastOffers() != null)
+		{
+			lastOffers = new ConcurrentHashMap<>(state.getLastOffers());
+		}
+		if (state.getSlotTimers() != null)
+		{
+			slotTimers = state.getSlotTimers();
+		}
+		sessionStartTime = state.getSessionStartTime();
+		accumulatedSessionTime = state.getAccumulatedSessionTime();
+		lastSessionTimeUpdate = state.getLastSessionTimeUpdate();
+		stateSequence = state.getSequence();
+	}
+
+	/**
+	 * Creates a summary of this account's current trades, stored along with them so the account can be known about
+	 * without loading all of them.
+	 *
+	 * @param displayName display name of this account
+	 * @return the account's header
+	 */
+	public AccountHeader createHeader(String displayName)
+	{
+		int offerCount = 0;
+		Instant latestActivityTime = null;
+		for (FlippingItem item : trades)
+		{
+			offerCount += item.getHistory().getCompressedOfferEvents().size();
+			Instant itemActivityTime = item.getLatestActivityTime();
+			if (itemActivityTime != null && (latestActivityTime == null || itemActivityTime.isAfter(latestActivityTime)))
+			{
+				latestActivityTime = itemActivityTime;
+			}
+		}
+		return new AccountHeader(displayName, 0, trades.size(), offerCount, latestActivityTime);
+	}
+
 	private List<TradeActivityTimer> setupSlotTimers(FlippingPlugin plugin)
 	{
 		ArrayList<TradeActivityTimer> slotTimers = new ArrayList<>();
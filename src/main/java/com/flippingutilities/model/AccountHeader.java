@@ -0,0 +1,29 @@
+package com.flippingutilities.model;
+
+import com.google.gson.annotations.SerializedName;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A small summary of an account that is stored at the start of the account's file. It can be read without reading
+ * the rest of the file, which is what lets the DataHandler know about every account without keeping every account's
+ * full history in memory.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccountHeader
+{
+	private transient String displayName;
+	//when the account's file was last modified, taken from the file itself rather than stored in it
+	private transient long lastModified;
+	@SerializedName("iC")
+	private int itemCount;
+	@SerializedName("oC")
+	private int offerCount;
+	@SerializedName("lAT")
+	private Instant latestActivityTime;
+}
@@ -0,0 +1,35 @@
+package com.flippingutilities.model;
+
+import com.flippingutilities.ui.widgets.TradeActivityTimer;
+import com.google.gson.annotations.SerializedName;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The parts of an account's data that change all the time while the account is logged in, such as its session time
+ * and the last offer in each slot. They are stored in their own small file so that keeping them up to date doesn't
+ * mean storing the account's whole trades list.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountState
+{
+	//compared with the account's stateSequence to know whether this is newer than the account's file
+	@SerializedName("seq")
+	private long sequence;
+	//the account's journal sequence when this was made, so journaled offers after it can still update the last offers
+	@SerializedName("jSeq")
+	private long journalSequence;
+	private Map<Integer, OfferEvent> lastOffers;
+	private Instant sessionStartTime;
+	private Duration accumulatedSessionTime;
+	private Instant lastSessionTimeUpdate;
+	private List<TradeActivityTimer> slotTimers;
+}
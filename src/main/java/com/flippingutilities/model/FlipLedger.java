@@ -0,0 +1,363 @@
+package com.flippingutilities.model;
+
+import com.flippingutilities.utilities.ListUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the flips made from one account's offers for an item, so they don't have to be created from the whole history
+ * every time they're looked at. Offers are paired the same way {@link HistoryManager#createFlips(List)} pairs them,
+ * but they are gone through once, in time order, as they come in.
+ * <p>
+ * An offer is settled once nothing that comes after it can change how it's paired. That is, it's complete and, if it's
+ * a margin check buy, the margin check sell it could be paired with has come in or an offer has come in too long after
+ * it for a sell to be paired with it. Settled offers are folded into the ledger and their flips are kept. Offers from
+ * the first offer that can't be settled yet onwards are kept as they are and their flips are worked out when the flips
+ * are read.
+ * <p>
+ * An offer that isn't complete is only left unsettled if no complete offer has come in after it, so an offer that
+ * stays open for a long time doesn't stop the trades in other slots from being settled. If a settled offer that isn't
+ * complete is replaced, the ledger is rebuilt. Only ongoing trades and recent margin checks are unsettled, so this is
+ * usually a handful of offers.
+ */
+class FlipLedger
+{
+	//same heuristic as HistoryManager#pairMarginChecks, a sell more than a minute after a buy probably isn't for it
+	private static final Duration MARGIN_CHECK_WINDOW = Duration.ofMinutes(1);
+
+	//flips made from the settled offers, in time order
+	private final List<Flip> settledFlips = new ArrayList<>();
+	private final Matcher settledMatcher = new Matcher();
+	//margin check sells that come after the last settled offer but were already paired with a settled margin check buy
+	private final Set<OfferEvent> pairedMarginCheckSells = Collections.newSetFromMap(new IdentityHashMap<>());
+	//offers after the last settled offer, in time order
+	private final List<OfferEvent> unsettledOffers = new ArrayList<>();
+	//offers before this could change how settled offers were paired, so the ledger can't take them
+	private Instant settledUntil;
+
+	FlipLedger(List<OfferEvent> offers)
+	{
+		unsettledOffers.addAll(offers);
+		settle();
+	}
+
+	/**
+	 * Adds a new offer to the ledger.
+	 *
+	 * @param offer the offer to add
+	 * @return false if the offer is older than offers that were already settled, in which case the ledger can't take
+	 * it and has to be rebuilt.
+	 */
+	boolean add(OfferEvent offer)
+	{
+		if (settledUntil != null && offer.getTime().isBefore(settledUntil))
+		{
+			return false;
+		}
+
+		int insertionIdx = unsettledOffers.size();
+		while (insertionIdx > 0 && unsettledOffers.get(insertionIdx - 1).compareTime(offer) > 0)
+		{
+			insertionIdx--;
+		}
+		unsettledOffers.add(insertionIdx, offer);
+		settle();
+		return true;
+	}
+
+	/**
+	 * Removes an offer from the ledger.
+	 *
+	 * @param offer the offer to remove
+	 * @return false if the offer was already settled, in which case the ledger has to be rebuilt.
+	 */
+	boolean remove(OfferEvent offer)
+	{
+		for (int i = unsettledOffers.size() - 1; i > -1; i--)
+		{
+			if (unsettledOffers.get(i) == offer)
+			{
+				unsettledOffers.remove(i);
+				settle();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the flips made after earliestTime. Only the flips of the unsettled offers are worked out, the rest are
+	 * found with a binary search.
+	 */
+	List<Flip> getFlips(Instant earliestTime)
+	{
+		List<Flip> flips = new ArrayList<>(settledFlips.subList(indexAfter(settledFlips, earliestTime), settledFlips.size()));
+		for (Flip flip : unsettledFlips())
+		{
+			if (flip.getTime().isAfter(earliestTime))
+			{
+				flips.add(flip);
+			}
+		}
+		return flips;
+	}
+
+	/**
+	 * Counts the flips made after earliestTime, without copying the settled ones like {@link #getFlips(Instant)} does.
+	 */
+	int countFlips(Instant earliestTime)
+	{
+		int count = settledFlips.size() - indexAfter(settledFlips, earliestTime);
+		for (Flip flip : unsettledFlips())
+		{
+			if (flip.getTime().isAfter(earliestTime))
+			{
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private List<Flip> unsettledFlips()
+	{
+		List<Flip> unsettledFlips = new ArrayList<>();
+		if (unsettledOffers.isEmpty())
+		{
+			settledMatcher.ongoingFlip(unsettledFlips);
+		}
+		else
+		{
+			Matcher matcher = settledMatcher.copy();
+			Set<OfferEvent> pairedSells = Collections.newSetFromMap(new IdentityHashMap<>());
+			pairedSells.addAll(pairedMarginCheckSells);
+			pairOffers(unsettledOffers, matcher, pairedSells, unsettledFlips, false);
+			matcher.ongoingFlip(unsettledFlips);
+		}
+		return unsettledFlips;
+	}
+
+	private void settle()
+	{
+		List<Flip> newFlips = new ArrayList<>();
+		int settledCount = pairOffers(unsettledOffers, settledMatcher, pairedMarginCheckSells, newFlips, true);
+		if (settledCount == 0)
+		{
+			return;
+		}
+
+		for (OfferEvent offer : unsettledOffers.subList(0, settledCount))
+		{
+			//a margin check sell that came in within the window of a settled margin check buy could have been paired
+			//with it
+			Instant offerSettledUntil = offer.isMarginCheck() && offer.isBuy() ? offer.getTime().plus(MARGIN_CHECK_WINDOW) : offer.getTime();
+			if (settledUntil == null || offerSettledUntil.isAfter(settledUntil))
+			{
+				settledUntil = offerSettledUntil;
+			}
+		}
+		unsettledOffers.subList(0, settledCount).clear();
+
+		//a flip takes the time of its sell, and a sell can be settled before the buys that complete it, so flips
+		//don't always come out in time order.
+		for (Flip flip : newFlips)
+		{
+			settledFlips.add(indexAfter(settledFlips, flip.getTime()), flip);
+		}
+	}
+
+	/**
+	 * Goes through offers in time order, pairing margin checks together and passing everything else to the matcher.
+	 * When not settling, copies of the ledger's matcher and paired sells have to be given so the ledger isn't changed.
+	 *
+	 * @param offers                 the offers to go through
+	 * @param matcher                matches the offers that aren't part of a margin check flip
+	 * @param pairedMarginCheckSells margin check sells in offers that were already paired with an earlier buy. The
+	 *                               sells paired while going through the offers are added to it.
+	 * @param flips                  the list the flips made are added to
+	 * @param settle                 whether to stop at the first offer that can't be settled yet
+	 * @return the amount of offers that were gone through
+	 */
+	private static int pairOffers(List<OfferEvent> offers, Matcher matcher, Set<OfferEvent> pairedMarginCheckSells, List<Flip> flips, boolean settle)
+	{
+		int lastCompleteIdx = offers.size() - 1;
+		while (settle && lastCompleteIdx >= 0 && !offers.get(lastCompleteIdx).isComplete())
+		{
+			lastCompleteIdx--;
+		}
+
+		for (int i = 0; i < offers.size(); i++)
+		{
+			OfferEvent offer = offers.get(i);
+			if (settle && i > lastCompleteIdx)
+			{
+				return i;
+			}
+
+			if (offer.isMarginCheck() && offer.isBuy())
+			{
+				OfferEvent sell = nextMarginCheckSell(offers, i, pairedMarginCheckSells);
+				Instant windowEnd = offer.getTime().plus(MARGIN_CHECK_WINDOW);
+				//a sell can still come in for it unless an offer already came in after its window
+				if (sell == null && settle && !offers.get(offers.size() - 1).getTime().isAfter(windowEnd))
+				{
+					return i;
+				}
+
+				if (sell != null && sell.getTime().isBefore(windowEnd))
+				{
+					pairedMarginCheckSells.add(sell);
+					flips.add(new Flip(offer.getPrice(), sell.getPrice(), sell.getCurrentQuantityInTrade(), sell.getTime(), sell.isMarginCheck(), false));
+				}
+				else
+				{
+					matcher.addBuy(offer, flips);
+				}
+			}
+			else if (offer.isMarginCheck() && pairedMarginCheckSells.remove(offer))
+			{
+				//already part of a margin check flip
+			}
+			else if (offer.isBuy())
+			{
+				matcher.addBuy(offer, flips);
+			}
+			else
+			{
+				matcher.addSell(offer, flips);
+			}
+		}
+		return offers.size();
+	}
+
+	private static OfferEvent nextMarginCheckSell(List<OfferEvent> offers, int buyIdx, Set<OfferEvent> pairedMarginCheckSells)
+	{
+		for (int i = buyIdx + 1; i < offers.size(); i++)
+		{
+			OfferEvent offer = offers.get(i);
+			if (offer.isMarginCheck() && !offer.isBuy() && !pairedMarginCheckSells.contains(offer))
+			{
+				return offer;
+			}
+		}
+		return null;
+	}
+
+	private static int indexAfter(List<Flip> flips, Instant time)
+	{
+		return ListUtils.indexOfFirstMatch(flips, flip -> flip.getTime().isAfter(time));
+	}
+
+	/**
+	 * Matches sells with buys first in first out, the way {@link HistoryManager#createFlips(List)} matches offers that
+	 * aren't part of a margin check flip. A flip is made once a sell is matched with enough buys. At most one of the
+	 * queues has offers in it after matching.
+	 */
+	private static class Matcher
+	{
+		private final ArrayDeque<Lot> buys = new ArrayDeque<>();
+		private final ArrayDeque<Lot> sells = new ArrayDeque<>();
+		//how much of the first sell has been matched so far, and what the matched items were bought for
+		private int matchedQuantity;
+		private long matchedValue;
+
+		void addBuy(OfferEvent offer, List<Flip> flips)
+		{
+			buys.add(new Lot(offer));
+			match(flips);
+		}
+
+		void addSell(OfferEvent offer, List<Flip> flips)
+		{
+			//there is nothing to make a flip out of
+			if (offer.getCurrentQuantityInTrade() == 0)
+			{
+				return;
+			}
+			sells.add(new Lot(offer));
+			match(flips);
+		}
+
+		private void match(List<Flip> flips)
+		{
+			while (!sells.isEmpty() && !buys.isEmpty())
+			{
+				Lot sell = sells.peek();
+				Lot buy = buys.peek();
+				int taken = Math.min(buy.quantity, sell.quantity - matchedQuantity);
+				matchedQuantity += taken;
+				matchedValue += (long) taken * buy.price;
+				buy.quantity -= taken;
+				if (buy.quantity == 0)
+				{
+					buys.poll();
+				}
+
+				if (matchedQuantity == sell.quantity)
+				{
+					flips.add(new Flip((int) (matchedValue / sell.quantity), sell.price, sell.quantity, sell.time, false, !sell.complete));
+					sells.poll();
+					matchedQuantity = 0;
+					matchedValue = 0;
+				}
+			}
+		}
+
+		/**
+		 * Adds the flip for a sell that has only been partly matched, as there aren't enough buys for it yet.
+		 */
+		void ongoingFlip(List<Flip> flips)
+		{
+			if (!sells.isEmpty() && matchedQuantity != 0)
+			{
+				Lot sell = sells.peek();
+				flips.add(new Flip((int) (matchedValue / matchedQuantity), sell.price, matchedQuantity, sell.time, false, true));
+			}
+		}
+
+		Matcher copy()
+		{
+			Matcher copy = new Matcher();
+			buys.forEach(lot -> copy.buys.add(lot.copy()));
+			sells.forEach(lot -> copy.sells.add(lot.copy()));
+			copy.matchedQuantity = matchedQuantity;
+			copy.matchedValue = matchedValue;
+			return copy;
+		}
+	}
+
+	/**
+	 * What's left of an offer while it's being matched.
+	 */
+	private static class Lot
+	{
+		private final int price;
+		private final Instant time;
+		private final boolean complete;
+		private int quantity;
+
+		private Lot(int price, Instant time, boolean complete, int quantity)
+		{
+			this.price = price;
+			this.time = time;
+			this.complete = complete;
+			this.quantity = quantity;
+		}
+
+		private Lot(OfferEvent offer)
+		{
+			this(offer.getPrice(), offer.getTime(), offer.isComplete(), offer.getCurrentQuantityInTrade());
+		}
+
+		private Lot copy()
+		{
+			return new Lot(price, time, complete, quantity);
+		}
+	}
+}
@@ -91,12 +91,13 @@ public class FlippingItem
 	@Setter
 	private String favoriteCode = "1";
 
+	//what the margin getters return when there isn't both an insta buy and an insta sell
+	public static final int NO_MARGIN = Integer.MIN_VALUE;
+
 	//non persisted fields start here.
-	@Setter
 	@Getter
 	private transient Optional<OfferEvent> latestInstaBuy;
 
-	@Setter
 	@Getter
 	private transient Optional<OfferEvent> latestInstaSell;
 
@@ -117,6 +118,11 @@ public class FlippingItem
 	@Setter
 	private transient Boolean expand;
 
+	//the margin and roi of the latest insta buy and sell, worked out whenever they change rather than every time the
+	//panels are refreshed or sorted.
+	private transient int currentProfitEach = NO_MARGIN;
+	private transient float currentRoi = Float.NaN;
+
 	public FlippingItem(int itemId, String itemName, int totalGeLimit, String flippedBy)
 	{
 		this.latestInstaBuy = Optional.empty();
@@ -130,12 +136,20 @@ public class FlippingItem
 	}
 
 	public FlippingItem clone()
+	{
+		return withHistory(history.clone());
+	}
+
+	/**
+	 * @return a copy of this item with the given history in place of its own
+	 */
+	private FlippingItem withHistory(HistoryManager history)
 	{
 		return new FlippingItem(
 				itemId,
 				itemName,
 				totalGELimit,
-				history.clone(),
+				history,
 				flippedBy,
 				validFlippingPanelItem,
 				favorite,
@@ -145,7 +159,9 @@ public class FlippingItem
 				latestBuy,
 				latestSell,
 				latestActivityTime,
-				expand);
+				expand,
+				currentProfitEach,
+				currentRoi);
 	}
 
 	/**
@@ -185,6 +201,7 @@ public class FlippingItem
 			latestSell = Optional.of(newOffer);
 		}
 		latestActivityTime = newOffer.getTime();
+		updateMargin();
 	}
 
 	/**
@@ -202,18 +219,76 @@ public class FlippingItem
 
 		if (item1.getLatestActivityTime().compareTo(item2.getLatestActivityTime()) >= 0)
 		{
-			item1.getHistory().getCompressedOfferEvents().addAll(item2.getHistory().getCompressedOfferEvents());
+			item1.getHistory().mergeHistory(item2.getHistory());
 			item1.setFavorite(item1.isFavorite() || item2.isFavorite());
 			return item1;
 		}
 		else
 		{
-			item2.getHistory().getCompressedOfferEvents().addAll(item1.getHistory().getCompressedOfferEvents());
+			item2.getHistory().mergeHistory(item1.getHistory());
 			item2.setFavorite(item2.isFavorite() || item1.isFavorite());
 			return item2;
 		}
 	}
 
+	/**
+	 * Merges several flipping items for the same item in one go, without changing them. The result is the same as
+	 * merging copies of the items one at a time with {@link #merge(FlippingItem, FlippingItem)}, but each offer is
+	 * only copied once and the histories are merged together in time order instead of two at a time.
+	 *
+	 * @param items the items to merge, which shouldn't be empty
+	 * @return a new merged flipping item
+	 */
+	public static FlippingItem merge(List<FlippingItem> items)
+	{
+		FlippingItem latestItem = items.get(0);
+		boolean favorite = false;
+		List<HistoryManager> histories = new ArrayList<>(items.size());
+		for (FlippingItem item : items)
+		{
+			if (item.getLatestActivityTime().compareTo(latestItem.getLatestActivityTime()) > 0)
+			{
+				latestItem = item;
+			}
+			favorite = favorite || item.isFavorite();
+			histories.add(item.getHistory());
+		}
+
+		FlippingItem mergedItem = latestItem.withHistory(HistoryManager.mergedCopy(histories, latestItem.getHistory()));
+		mergedItem.setFavorite(favorite);
+		return mergedItem;
+	}
+
+	/**
+	 * Updates an item made by merging the items of several accounts with an offer that was just added to one of
+	 * those items, so it stays the same as {@link #merge(FlippingItem, FlippingItem)} would make it if the items
+	 * were merged again.
+	 *
+	 * @param updatedItem the item the offer was added to
+	 * @param newOffer    a copy of the offer, as the merged item shouldn't share offers with the account's item
+	 */
+	public void updateMergedItem(FlippingItem updatedItem, OfferEvent newOffer)
+	{
+		history.updateMergedHistory(newOffer, updatedItem.getHistory());
+		favorite = favorite || updatedItem.isFavorite();
+
+		if (updatedItem.getLatestActivityTime().compareTo(latestActivityTime) >= 0)
+		{
+			itemName = updatedItem.getItemName();
+			totalGELimit = updatedItem.getTotalGELimit();
+			flippedBy = updatedItem.getFlippedBy();
+			validFlippingPanelItem = updatedItem.getValidFlippingPanelItem();
+			favoriteCode = updatedItem.getFavoriteCode();
+			latestInstaBuy = updatedItem.getLatestInstaBuy();
+			latestInstaSell = updatedItem.getLatestInstaSell();
+			latestBuy = updatedItem.getLatestBuy();
+			latestSell = updatedItem.getLatestSell();
+			latestActivityTime = updatedItem.getLatestActivityTime();
+			expand = updatedItem.getExpand();
+			updateMargin();
+		}
+	}
+
 	public long currentProfit(List<OfferEvent> tradeList)
 	{
 		return history.currentProfit(tradeList);
@@ -224,9 +299,14 @@ public class FlippingItem
 		return history.getFlippedCashFlow(tradeList, getExpense);
 	}
 
+	public long currentProfit(Instant earliestTime)
+	{
+		return history.currentProfit(earliestTime);
+	}
+
 	public long getFlippedCashFlow(Instant earliestTime, boolean getExpense)
 	{
-		return history.getFlippedCashFlow(getIntervalHistory(earliestTime), getExpense);
+		return history.getFlippedCashFlow(earliestTime, getExpense);
 	}
 
 	public long getTotalCashFlow(List<OfferEvent> tradeList, boolean getExpense)
@@ -234,12 +314,32 @@ public class FlippingItem
 		return history.getTotalCashFlow(tradeList, getExpense);
 	}
 
+	public long getTotalCashFlow(Instant earliestTime, boolean getExpense)
+	{
+		return history.getTotalCashFlow(earliestTime, getExpense);
+	}
+
 	public int countItemsFlipped(List<OfferEvent> tradeList)
 	{
 		return history.countItemsFlipped(tradeList);
 	}
 
-	public ArrayList<OfferEvent> getIntervalHistory(Instant earliestTime)
+	public int countItemsFlipped(Instant earliestTime)
+	{
+		return history.countItemsFlipped(earliestTime);
+	}
+
+	public long countItemsTraded(Instant earliestTime, boolean bought)
+	{
+		return history.countItemsTraded(earliestTime, bought);
+	}
+
+	public IntervalStats getIntervalStats(Instant earliestTime)
+	{
+		return history.getIntervalStats(earliestTime);
+	}
+
+	public List<OfferEvent> getIntervalHistory(Instant earliestTime)
 	{
 		return history.getIntervalsHistory(earliestTime);
 	}
@@ -269,6 +369,14 @@ public class FlippingItem
 		return history.getFlips(earliestTime);
 	}
 
+	/**
+	 * @return a number that changes whenever the item's offers change
+	 */
+	public int getHistoryVersion()
+	{
+		return history.getVersion();
+	}
+
 	public boolean hasValidOffers()
 	{
 		return history.hasValidOffers();
@@ -288,24 +396,28 @@ public class FlippingItem
 			latestInstaSell = Optional.empty();
 			latestBuy = Optional.empty();
 			latestSell = Optional.empty();
+			updateMargin();
 		}
 	}
 
-	public Optional<Integer> getPotentialProfit(boolean includeMarginCheck, boolean shouldUseRemainingGeLimit)
+	/**
+	 * @return the profit of buying the ge limit and selling it at the current margin, or {@link #NO_MARGIN} if there
+	 * isn't a margin
+	 */
+	public int getPotentialProfit(boolean includeMarginCheck, boolean shouldUseRemainingGeLimit)
 	{
-		if (!getLatestInstaBuy().isPresent() || !getLatestInstaSell().isPresent()) {
-			return Optional.empty();
+		if (currentProfitEach == NO_MARGIN) {
+			return NO_MARGIN;
 		}
 
-		int profitEach = getCurrentProfitEach().get();
 		int remainingGeLimit = getRemainingGeLimit();
 		int geLimit = shouldUseRemainingGeLimit ? remainingGeLimit : totalGELimit;
-		int profitTotal = geLimit * profitEach;
+		int profitTotal = geLimit * currentProfitEach;
 		if (includeMarginCheck)
 		{
-			profitTotal -= profitEach;
+			profitTotal -= currentProfitEach;
 		}
-		return Optional.of(profitTotal);
+		return profitTotal;
 	}
 
 	public List<OfferEvent> getOfferMatches(OfferEvent offerEvent, int limit)
@@ -313,14 +425,58 @@ public class FlippingItem
 		return history.getOfferMatches(offerEvent, limit);
 	}
 
-	public Optional<Float> getCurrentRoi() {
-		return getCurrentProfitEach().isPresent()?
-				Optional.of((float)getCurrentProfitEach().get() / getLatestInstaSell().get().getPrice() * 100) : Optional.empty();
+	/**
+	 * Adds offers scraped from the GE history tab to the history, skipping ones that are already in it, and updates
+	 * the latest properties with the ones that were added.
+	 *
+	 * @return the offers that were added
+	 * @see HistoryManager#addGeTabOffers(List, List, Instant)
+	 */
+	public List<OfferEvent> addGeTabOffers(List<OfferEvent> offers, List<Integer> identicalOffersAbove, Instant oldestOfferInTab)
+	{
+		List<OfferEvent> addedOffers = history.addGeTabOffers(offers, identicalOffersAbove, oldestOfferInTab);
+		addedOffers.forEach(this::updateLatestProperties);
+		return addedOffers;
+	}
+
+	/**
+	 * @return the roi of the current margin, or NaN if there isn't a margin
+	 */
+	public float getCurrentRoi() {
+		return currentRoi;
+	}
+
+	/**
+	 * @return the profit each of the current margin, or {@link #NO_MARGIN} if there isn't a margin
+	 */
+	public int getCurrentProfitEach() {
+		return currentProfitEach;
 	}
 
-	public Optional<Integer> getCurrentProfitEach() {
-		return getLatestInstaBuy().isPresent() && getLatestInstaSell().isPresent()?
-				Optional.of(getLatestInstaBuy().get().getPrice() - getLatestInstaSell().get().getPrice()) : Optional.empty();
+	public boolean hasMargin() {
+		return currentProfitEach != NO_MARGIN;
+	}
+
+	public void setLatestInstaBuy(Optional<OfferEvent> latestInstaBuy) {
+		this.latestInstaBuy = latestInstaBuy;
+		updateMargin();
+	}
+
+	public void setLatestInstaSell(Optional<OfferEvent> latestInstaSell) {
+		this.latestInstaSell = latestInstaSell;
+		updateMargin();
+	}
+
+	private void updateMargin() {
+		if (latestInstaBuy != null && latestInstaSell != null && latestInstaBuy.isPresent() && latestInstaSell.isPresent()) {
+			int instaSellPrice = latestInstaSell.get().getPrice();
+			currentProfitEach = latestInstaBuy.get().getPrice() - instaSellPrice;
+			currentRoi = (float) currentProfitEach / instaSellPrice * 100;
+		}
+		else {
+			currentProfitEach = NO_MARGIN;
+			currentRoi = Float.NaN;
+		}
 	}
 
 	/**
@@ -330,11 +486,13 @@ public class FlippingItem
 	 * manually sync state when flipping items are created at plugin startup.
 	 */
 	public void syncState() {
-		latestBuy = history.getLatestOfferThatMatchesPredicate(offer -> offer.isBuy());
-		latestSell = history.getLatestOfferThatMatchesPredicate(offer -> !offer.isBuy());
-		latestInstaBuy = history.getLatestOfferThatMatchesPredicate(offer -> offer.isBuy() & offer.isMarginCheck());
-		latestInstaSell = history.getLatestOfferThatMatchesPredicate(offer -> !offer.isBuy() & offer.isMarginCheck());
+		HistoryManager.LatestOffers latestOffers = history.getLatestOffers();
+		latestBuy = Optional.ofNullable(latestOffers.getBuy());
+		latestSell = Optional.ofNullable(latestOffers.getSell());
+		latestInstaBuy = Optional.ofNullable(latestOffers.getInstaBuy());
+		latestInstaSell = Optional.ofNullable(latestOffers.getInstaSell());
 		latestActivityTime = history.getCompressedOfferEvents().size() == 0? Instant.now() : history.getCompressedOfferEvents().get(history.getCompressedOfferEvents().size()-1).getTime();
+		updateMargin();
 	}
 
 	public void setOfferMadeBy() {
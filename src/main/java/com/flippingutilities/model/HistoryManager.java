@@ -30,7 +30,6 @@ package com.flippingutilities.model;
 import com.flippingutilities.utilities.ListUtils;
 import com.google.common.collect.Lists;
 import com.google.gson.annotations.SerializedName;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -49,13 +48,12 @@ import java.util.stream.Collectors;
  * next ge limit refresh for this an item will be.
  */
 @Slf4j
-@AllArgsConstructor
 @NoArgsConstructor
 public class HistoryManager
 {
+	//kept in time order, so anything that changes it should go through this class rather than modifying it directly.
 	@SerializedName("sO")
 	@Getter
-	@Setter
 	private List<OfferEvent> compressedOfferEvents = new ArrayList<>();
 
 	@SerializedName("nGLR")
@@ -69,6 +67,32 @@ public class HistoryManager
 	@SerializedName("pIB")
 	private int itemsBoughtThroughCompleteOffers;
 
+	//the valid offers of compressedOfferEvents, in time order, along with running totals over them. Kept up to date
+	//as offers are added and removed, and only dropped and rebuilt the next time it's needed when the history changes
+	//as a whole, such as when it's sorted or merged.
+	private transient ValidOffers validOffersByTime;
+
+	//goes up every time the offers change, so things worked out from them can tell if they're out of date.
+	@Getter
+	private transient volatile int version;
+
+	//the flips made from the valid offers, kept up to date as offers come in rather than being recreated every time
+	//they're looked at. There is a ledger for each account, as offers from different accounts shouldn't be matched.
+	private transient Map<String, FlipLedger> flipLedgers;
+
+	//the complete offers in time order, grouped by whether they're buys, their price and their quantity. Used to find
+	//the offers that could be the same trade as an offer from the ge history tab without going through the whole
+	//history. Built when it's first needed and kept up to date as offers are added.
+	private transient Map<Long, List<OfferEvent>> completeOffersByTrade;
+
+	private HistoryManager(List<OfferEvent> compressedOfferEvents, Instant nextGeLimitRefresh, int itemsBoughtThisLimitWindow, int itemsBoughtThroughCompleteOffers)
+	{
+		this.compressedOfferEvents = compressedOfferEvents;
+		this.nextGeLimitRefresh = nextGeLimitRefresh;
+		this.itemsBoughtThisLimitWindow = itemsBoughtThisLimitWindow;
+		this.itemsBoughtThroughCompleteOffers = itemsBoughtThroughCompleteOffers;
+	}
+
 	public HistoryManager clone()
 	{
 		List<OfferEvent> clonedCompressedOfferEvents = compressedOfferEvents.stream().map(OfferEvent::clone).collect(Collectors.toList());
@@ -76,7 +100,83 @@ public class HistoryManager
 		return new HistoryManager(clonedCompressedOfferEvents, clonedGeLimitRefresh, itemsBoughtThisLimitWindow, itemsBoughtThroughCompleteOffers);
 	}
 
-	public void updateHistory(OfferEvent newOffer)
+	/**
+	 * Creates a history out of copies of the offers of several histories. The histories are merged in one pass
+	 * through a {@link MergedHistory} rather than being cloned and merged into each other one at a time.
+	 *
+	 * @param histories      the histories to merge
+	 * @param geLimitHistory the history whose ge limit properties are kept, as they are by mergeHistory
+	 */
+	public static HistoryManager mergedCopy(List<HistoryManager> histories, HistoryManager geLimitHistory)
+	{
+		MergedHistory mergedHistory = new MergedHistory(histories);
+		List<OfferEvent> offers = new ArrayList<>(mergedHistory.size());
+		mergedHistory.forEach(offer -> offers.add(offer.clone()));
+		Instant clonedGeLimitRefresh = geLimitHistory.nextGeLimitRefresh == null ? null : Instant.ofEpochMilli(geLimitHistory.nextGeLimitRefresh.toEpochMilli());
+		return new HistoryManager(offers, clonedGeLimitRefresh, geLimitHistory.itemsBoughtThisLimitWindow, geLimitHistory.itemsBoughtThroughCompleteOffers);
+	}
+
+	public synchronized void setCompressedOfferEvents(List<OfferEvent> offers)
+	{
+		compressedOfferEvents = new ArrayList<>(offers);
+		ensureTimeOrdered();
+		offersChanged();
+		flipLedgers = null;
+		completeOffersByTrade = null;
+	}
+
+	/**
+	 * Sorts the history by time if it isn't already. Histories stored by older versions, or merged from several
+	 * accounts, might not be in order.
+	 */
+	public synchronized void ensureTimeOrdered()
+	{
+		for (int i = 1; i < compressedOfferEvents.size(); i++)
+		{
+			if (compressedOfferEvents.get(i - 1).compareTime(compressedOfferEvents.get(i)) > 0)
+			{
+				//a stable sort, so offers with the same time keep the order they came in
+				compressedOfferEvents.sort(OfferEvent::compareTime);
+				offersChanged();
+				flipLedgers = null;
+				completeOffersByTrade = null;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Adds the offers of another history to this one, keeping the result in time order. Both histories are
+	 * already in time order so they are merged rather than sorted.
+	 *
+	 * @param other the history whose offers are added to this one
+	 */
+	public synchronized void mergeHistory(HistoryManager other)
+	{
+		List<OfferEvent> otherOffers = other.getCompressedOfferEvents();
+		List<OfferEvent> merged = new ArrayList<>(compressedOfferEvents.size() + otherOffers.size());
+		int i = 0;
+		int j = 0;
+		while (i < compressedOfferEvents.size() && j < otherOffers.size())
+		{
+			if (otherOffers.get(j).compareTime(compressedOfferEvents.get(i)) < 0)
+			{
+				merged.add(otherOffers.get(j++));
+			}
+			else
+			{
+				merged.add(compressedOfferEvents.get(i++));
+			}
+		}
+		merged.addAll(compressedOfferEvents.subList(i, compressedOfferEvents.size()));
+		merged.addAll(otherOffers.subList(j, otherOffers.size()));
+		compressedOfferEvents = merged;
+		offersChanged();
+		flipLedgers = null;
+		completeOffersByTrade = null;
+	}
+
+	public synchronized void updateHistory(OfferEvent newOffer)
 	{
 		//if slot is -1 than the offer was added manually from GE history.
 		//Since we don't know when it came or its slot/it doesn't have a time or slot, there is no point in updating ge
@@ -87,7 +187,77 @@ public class HistoryManager
 			deletePreviousOffersForTrade(newOffer);
 		}
 
-		compressedOfferEvents.add(newOffer);
+		addOffer(newOffer);
+	}
+
+	/**
+	 * Updates a history made by merging the histories of several accounts with an offer that was just added to one of
+	 * them, so it stays the same as merging the histories again would make it. Only the offers made by the same
+	 * account can be part of the same trade, and since the account's history is now the most recently active one,
+	 * its ge limit properties are the ones kept.
+	 *
+	 * @param newOffer       the offer that was added to the account's history
+	 * @param accountHistory the history of the account the offer was made by, which the offer was already added to
+	 */
+	public synchronized void updateMergedHistory(OfferEvent newOffer, HistoryManager accountHistory)
+	{
+		if (newOffer.getSlot() != -1)
+		{
+			nextGeLimitRefresh = accountHistory.nextGeLimitRefresh;
+			itemsBoughtThisLimitWindow = accountHistory.itemsBoughtThisLimitWindow;
+			itemsBoughtThroughCompleteOffers = accountHistory.itemsBoughtThroughCompleteOffers;
+			deletePreviousOffersForTrade(newOffer, true);
+		}
+
+		addOffer(newOffer);
+	}
+
+	private void addOffer(OfferEvent newOffer)
+	{
+		//offers nearly always come in after every offer already in the history, so this rarely has to look back
+		int insertionIdx = compressedOfferEvents.size();
+		while (insertionIdx > 0 && compressedOfferEvents.get(insertionIdx - 1).compareTime(newOffer) > 0)
+		{
+			insertionIdx--;
+		}
+		compressedOfferEvents.add(insertionIdx, newOffer);
+		version++;
+		if (validOffersByTime != null && newOffer.isValidOfferEvent())
+		{
+			int validOffersAfter = 0;
+			for (int i = insertionIdx + 1; i < compressedOfferEvents.size(); i++)
+			{
+				if (compressedOfferEvents.get(i).isValidOfferEvent())
+				{
+					validOffersAfter++;
+				}
+			}
+			validOffersByTime.add(validOffersByTime.offers.size() - validOffersAfter, newOffer);
+		}
+
+		if (completeOffersByTrade != null && newOffer.isComplete())
+		{
+			List<OfferEvent> offers = completeOffersByTrade.computeIfAbsent(tradeKey(newOffer), k -> new ArrayList<>());
+			int idx = offers.size();
+			while (idx > 0 && offers.get(idx - 1).compareTime(newOffer) > 0)
+			{
+				idx--;
+			}
+			offers.add(idx, newOffer);
+		}
+
+		if (flipLedgers != null && newOffer.isValidOfferEvent())
+		{
+			FlipLedger ledger = flipLedgers.get(newOffer.getMadeBy());
+			if (ledger == null)
+			{
+				flipLedgers.put(newOffer.getMadeBy(), new FlipLedger(Collections.singletonList(newOffer)));
+			}
+			else if (!ledger.add(newOffer))
+			{
+				flipLedgers = null;
+			}
+		}
 	}
 
 	/**
@@ -161,11 +331,21 @@ public class HistoryManager
 	 *
 	 * @param newOfferEvent offer event just received
 	 */
-	public void deletePreviousOffersForTrade(OfferEvent newOfferEvent)
+	public synchronized void deletePreviousOffersForTrade(OfferEvent newOfferEvent)
+	{
+		deletePreviousOffersForTrade(newOfferEvent, false);
+	}
+
+	private void deletePreviousOffersForTrade(OfferEvent newOfferEvent, boolean sameAccountOnly)
 	{
 		for (int i = compressedOfferEvents.size() - 1; i > -1; i--)
 		{
 			OfferEvent aPreviousOffer = compressedOfferEvents.get(i);
+			if (sameAccountOnly && !Objects.equals(aPreviousOffer.getMadeBy(), newOfferEvent.getMadeBy()))
+			{
+				continue;
+			}
+
 			if (aPreviousOffer.getSlot() == newOfferEvent.getSlot() && aPreviousOffer.isBuy() == newOfferEvent.isBuy())
 			{
 				//if it belongs to the same slot and its complete, it must belong to a previous trade given that
@@ -177,6 +357,12 @@ public class HistoryManager
 				else
 				{
 					compressedOfferEvents.remove(i);
+					version++;
+					if (validOffersByTime != null && aPreviousOffer.isValidOfferEvent())
+					{
+						validOffersByTime.remove(aPreviousOffer);
+					}
+					removeFromFlipLedger(aPreviousOffer);
 				}
 			}
 		}
@@ -318,24 +504,244 @@ public class HistoryManager
 	}
 
 	/**
-	 * Returns the history of the item that were traded between earliestTime and now.
+	 * Calculates the profit made from the trades between earliestTime and now. Unlike {@link #currentProfit(List)},
+	 * this doesn't go through the trades, it uses the running totals so it takes the same time no matter how
+	 * many trades there are.
+	 *
+	 * @param earliestTime the start of the interval
+	 * @return profit
+	 */
+	public long currentProfit(Instant earliestTime)
+	{
+		return getFlippedCashFlow(earliestTime, false) - getFlippedCashFlow(earliestTime, true);
+	}
+
+	/**
+	 * Same as {@link #getFlippedCashFlow(List, boolean)} for the trades between earliestTime and now.
+	 */
+	public synchronized long getFlippedCashFlow(Instant earliestTime, boolean getExpense)
+	{
+		ValidOffers validOffers = getValidOffersByTime();
+		int start = validOffers.indexAfter(earliestTime);
+		return getExpense ?
+			validOffers.valueOfItems(validOffers.boughtQuantities, validOffers.boughtValues, start, validOffers.countItemsFlipped(start)) :
+			validOffers.valueOfItems(validOffers.soldQuantities, validOffers.soldValues, start, validOffers.countItemsFlipped(start));
+	}
+
+	/**
+	 * Same as {@link #getTotalCashFlow(List, boolean)} for the trades between earliestTime and now.
+	 */
+	public synchronized long getTotalCashFlow(Instant earliestTime, boolean getExpense)
+	{
+		ValidOffers validOffers = getValidOffersByTime();
+		int start = validOffers.indexAfter(earliestTime);
+		return getExpense ? validOffers.totalSince(validOffers.boughtValues, start) : validOffers.totalSince(validOffers.soldValues, start);
+	}
+
+	/**
+	 * Same as {@link #countItemsFlipped(List)} for the trades between earliestTime and now.
+	 */
+	public synchronized int countItemsFlipped(Instant earliestTime)
+	{
+		ValidOffers validOffers = getValidOffersByTime();
+		return (int) validOffers.countItemsFlipped(validOffers.indexAfter(earliestTime));
+	}
+
+	/**
+	 * Gets the amount of items bought or sold between earliestTime and now.
+	 *
+	 * @param earliestTime the start of the interval
+	 * @param bought       whether to count the items bought or the items sold
+	 * @return the amount of items bought or sold
+	 */
+	public synchronized long countItemsTraded(Instant earliestTime, boolean bought)
+	{
+		ValidOffers validOffers = getValidOffersByTime();
+		int start = validOffers.indexAfter(earliestTime);
+		return validOffers.totalSince(bought ? validOffers.boughtQuantities : validOffers.soldQuantities, start);
+	}
+
+	/**
+	 * Gets all the stats of the trades between earliestTime and now at once, instead of looking up the start of the
+	 * interval and going through the flips separately for each of them.
+	 *
+	 * @param earliestTime the start of the interval
+	 */
+	public synchronized IntervalStats getIntervalStats(Instant earliestTime)
+	{
+		ValidOffers validOffers = getValidOffersByTime();
+		int start = validOffers.indexAfter(earliestTime);
+		long itemsFlipped = validOffers.countItemsFlipped(start);
+		int flipCount = 0;
+		for (FlipLedger ledger : getFlipLedgers().values())
+		{
+			flipCount += ledger.countFlips(earliestTime);
+		}
+		int end = validOffers.offers.size();
+		return new IntervalStats(
+			validOffers.valueOfItems(validOffers.boughtQuantities, validOffers.boughtValues, start, itemsFlipped),
+			validOffers.valueOfItems(validOffers.soldQuantities, validOffers.soldValues, start, itemsFlipped),
+			validOffers.totalSince(validOffers.boughtValues, start),
+			validOffers.totalSince(validOffers.soldValues, start),
+			validOffers.totalSince(validOffers.boughtQuantities, start),
+			validOffers.totalSince(validOffers.soldQuantities, start),
+			itemsFlipped,
+			flipCount,
+			start < end ? validOffers.offers.get(end - 1).getTime() : null);
+	}
+
+	/**
+	 * Returns the history of the item that were traded between earliestTime and now. As the history is in time
+	 * order, the start of the interval is found with a binary search, so only the offers in the interval are copied.
+	 * The list is unmodifiable and isn't affected by later changes to the history.
 	 *
 	 * @param earliestTime the earliest time that trades from the trade history are added to the resulting list.
 	 * @return A list of offers that were within the interval of earliestTime and now.
 	 */
-	public ArrayList<OfferEvent> getIntervalsHistory(Instant earliestTime)
+	public synchronized List<OfferEvent> getIntervalsHistory(Instant earliestTime)
 	{
-		ArrayList<OfferEvent> result = new ArrayList<>();
+		ValidOffers validOffers = getValidOffersByTime();
+		return Collections.unmodifiableList(new ArrayList<>(
+			validOffers.offers.subList(validOffers.indexAfter(earliestTime), validOffers.offers.size())));
+	}
+
+	private void offersChanged()
+	{
+		validOffersByTime = null;
+		version++;
+	}
+
+	private synchronized ValidOffers getValidOffersByTime()
+	{
+		ValidOffers validOffers = validOffersByTime;
+		if (validOffers == null)
+		{
+			validOffers = new ValidOffers(compressedOfferEvents.stream().filter(OfferEvent::isValidOfferEvent).collect(Collectors.toList()));
+			validOffersByTime = validOffers;
+		}
+		return validOffers;
+	}
+
+	/**
+	 * The valid offers of a history in time order, along with running totals of the quantity and value of the
+	 * items bought and sold. Entry i of a running total is the total of the first i offers, so the total for
+	 * the offers from i onwards is the last entry minus entry i. This lets the stats for any interval be worked out
+	 * with a binary search for the start of the interval instead of a pass over every offer in it.
+	 *
+	 * Offers nearly always come in after every other offer, or replace the last offer of their trade, which is near
+	 * the end. So adding or removing an offer only works out the running totals again from where it is onwards, and
+	 * the arrays have room to grow so adding an offer doesn't copy them.
+	 */
+	private static class ValidOffers
+	{
+		private final List<OfferEvent> offers;
+		private long[] boughtQuantities;
+		private long[] boughtValues;
+		private long[] soldQuantities;
+		private long[] soldValues;
+
+		private ValidOffers(List<OfferEvent> offers)
+		{
+			this.offers = new ArrayList<>(offers);
+			int capacity = offers.size() + offers.size() / 2 + 10;
+			boughtQuantities = new long[capacity];
+			boughtValues = new long[capacity];
+			soldQuantities = new long[capacity];
+			soldValues = new long[capacity];
+			updateTotalsFrom(0);
+		}
+
+		private void add(int idx, OfferEvent offer)
+		{
+			offers.add(idx, offer);
+			if (offers.size() >= boughtQuantities.length)
+			{
+				int capacity = boughtQuantities.length + boughtQuantities.length / 2 + 1;
+				boughtQuantities = Arrays.copyOf(boughtQuantities, capacity);
+				boughtValues = Arrays.copyOf(boughtValues, capacity);
+				soldQuantities = Arrays.copyOf(soldQuantities, capacity);
+				soldValues = Arrays.copyOf(soldValues, capacity);
+			}
+			updateTotalsFrom(idx);
+		}
 
-		for (OfferEvent offer : compressedOfferEvents)
+		private void remove(OfferEvent offer)
 		{
-			if (offer.getTime().isAfter(earliestTime) && offer.isValidOfferEvent())
+			//the offer removed is nearly always one of the last ones, so look from the end
+			for (int i = offers.size() - 1; i >= 0; i--)
 			{
-				result.add(offer);
+				if (offers.get(i) == offer)
+				{
+					offers.remove(i);
+					updateTotalsFrom(i);
+					return;
+				}
 			}
 		}
 
-		return result;
+		private void updateTotalsFrom(int start)
+		{
+			for (int i = start; i < offers.size(); i++)
+			{
+				OfferEvent offer = offers.get(i);
+				long quantity = offer.getCurrentQuantityInTrade();
+				long value = quantity * offer.getPrice();
+				boughtQuantities[i + 1] = boughtQuantities[i] + (offer.isBuy() ? quantity : 0);
+				boughtValues[i + 1] = boughtValues[i] + (offer.isBuy() ? value : 0);
+				soldQuantities[i + 1] = soldQuantities[i] + (offer.isBuy() ? 0 : quantity);
+				soldValues[i + 1] = soldValues[i] + (offer.isBuy() ? 0 : value);
+			}
+		}
+
+		/**
+		 * @return the index of the first offer after the given time, or the amount of offers if there is none.
+		 */
+		private int indexAfter(Instant time)
+		{
+			return ListUtils.indexOfFirstMatch(offers, offer -> offer.isAfter(time));
+		}
+
+		private long totalSince(long[] runningTotal, int start)
+		{
+			return runningTotal[offers.size()] - runningTotal[start];
+		}
+
+		private long countItemsFlipped(int start)
+		{
+			return Math.min(totalSince(boughtQuantities, start), totalSince(soldQuantities, start));
+		}
+
+		/**
+		 * Gets the value of the first itemLimit items bought or sold from the start index onwards. Like
+		 * {@link #getValueOfTrades(List, long)}, only part of the offer that reaches the limit is counted.
+		 */
+		private long valueOfItems(long[] quantities, long[] values, int start, long itemLimit)
+		{
+			if (itemLimit <= 0)
+			{
+				return 0;
+			}
+
+			//find the offer that reaches the limit, the running quantity only goes up at buys/sells so it's
+			//always an offer of the right kind.
+			long targetQuantity = quantities[start] + itemLimit;
+			int low = start;
+			int high = offers.size() - 1;
+			while (low < high)
+			{
+				int mid = (low + high) >>> 1;
+				if (quantities[mid + 1] >= targetQuantity)
+				{
+					high = mid;
+				}
+				else
+				{
+					low = mid + 1;
+				}
+			}
+
+			return values[low] - values[start] + (targetQuantity - quantities[low]) * offers.get(low).getPrice();
+		}
 	}
 
 	/**
@@ -363,14 +769,19 @@ public class HistoryManager
 		return compressedOfferEvents.stream().anyMatch(OfferEvent::isValidOfferEvent);
 	}
 
-	public void invalidateOffers(List<OfferEvent> offerList)
+	public synchronized void invalidateOffers(List<OfferEvent> offerList)
 	{
 		offerList.forEach(offer -> offer.setValidOfferEvent(false));
+		offersChanged();
+		flipLedgers = null;
 		removeInvalidatedOfferEvents();
 	}
 
-	public void removeInvalidatedOfferEvents()
+	public synchronized void removeInvalidatedOfferEvents()
 	{
+		offersChanged();
+		flipLedgers = null;
+		completeOffersByTrade = null;
 		if (nextGeLimitRefresh == null)
 		{
 			compressedOfferEvents.removeIf(offer -> !offer.isValidOfferEvent());
@@ -384,23 +795,19 @@ public class HistoryManager
 	}
 
 	/**
-	 * Creates Flips from offers. Flips represent a buy trade followed by a sell trade. A trade is a collection
-	 * of offers from the empty offer to the completed offer. A completed offer marks the end of a trade.
+	 * Gets the flips made after earliestTime, most recent first. Flips represent a buy trade followed by a sell trade.
+	 * A trade is a collection of offers from the empty offer to the completed offer. A completed offer marks the end
+	 * of a trade.
+	 * <p>
+	 * The flips come from the item's flip ledgers, so the buys of a flip can be from before earliestTime.
 	 *
-	 * @param earliestTime the time after which trades should be looked at
+	 * @param earliestTime the time after which flips should be looked at
 	 * @return flips
 	 */
-	public List<Flip> getFlips(Instant earliestTime)
+	public synchronized List<Flip> getFlips(Instant earliestTime)
 	{
-		ArrayList<OfferEvent> intervalHistory = getIntervalsHistory(earliestTime);
-
-		//group offers based on which account those offers belong to (this is really only relevant when getting the flips
-		//of the account wide tradelist as you don't want to match offers from diff accounts.
-		Map<String, List<OfferEvent>> groupedOffers = intervalHistory.stream().collect(Collectors.groupingBy(OfferEvent::getMadeBy));
-
-		//take each offer list and create flips out of them, then put those flips into one list.
 		List<Flip> flips = new ArrayList<>();
-		groupedOffers.values().forEach(offers -> flips.addAll(createFlips(offers)));
+		getFlipLedgers().values().forEach(ledger -> flips.addAll(ledger.getFlips(earliestTime)));
 
 		flips.sort(Comparator.comparing(Flip::getTime));
 		Collections.reverse(flips);
@@ -408,6 +815,36 @@ public class HistoryManager
 		return flips;
 	}
 
+	private Map<String, FlipLedger> getFlipLedgers()
+	{
+		if (flipLedgers == null)
+		{
+			//group offers based on which account those offers belong to (this is really only relevant for the
+			//account wide tradelist as you don't want to match offers from diff accounts).
+			Map<String, List<OfferEvent>> groupedOffers = new HashMap<>();
+			getValidOffersByTime().offers.forEach(offer -> groupedOffers.computeIfAbsent(offer.getMadeBy(), k -> new ArrayList<>()).add(offer));
+
+			Map<String, FlipLedger> ledgers = new HashMap<>();
+			groupedOffers.forEach((madeBy, offers) -> ledgers.put(madeBy, new FlipLedger(offers)));
+			flipLedgers = ledgers;
+		}
+		return flipLedgers;
+	}
+
+	private void removeFromFlipLedger(OfferEvent offer)
+	{
+		if (flipLedgers == null || !offer.isValidOfferEvent())
+		{
+			return;
+		}
+
+		FlipLedger ledger = flipLedgers.get(offer.getMadeBy());
+		if (ledger == null || !ledger.remove(offer))
+		{
+			flipLedgers = null;
+		}
+	}
+
 	/**
 	 * Gets offers that have the same quantity, price ea, and buy/sell state as the given offer. This is currently used
 	 * to see if there are any potential duplicates of an offer a user is trying to add manually from their GE history.
@@ -418,28 +855,125 @@ public class HistoryManager
 	 * @return offers that could potentially be duplicates of the given offer event.
 	 * @parm limit max amount of potentially duplicate offers to find.
 	 */
-	public List<OfferEvent> getOfferMatches(OfferEvent offer, int limit)
+	public synchronized List<OfferEvent> getOfferMatches(OfferEvent offer, int limit)
 	{
+		//don't just compare state because the scraped offer will only be of state BOUGHT/SOLD, whereas the offer in history
+		//might be CANCELLED_BUY/CANCELLED_SELL
+		List<OfferEvent> pastOffers = getCompleteOffersByTrade().getOrDefault(tradeKey(offer), Collections.emptyList());
 		List<OfferEvent> matches = new ArrayList<>();
-		int count = 0;
 		//look from the back to get the N most recent matches where N = limit.
-		for (int i = compressedOfferEvents.size() - 1; i > -1; i--)
+		for (int i = pastOffers.size() - 1; i > -1 && matches.size() < limit; i--)
+		{
+			matches.add(pastOffers.get(i));
+		}
+		return matches;
+	}
+
+	/**
+	 * Adds offers scraped from the GE history tab, skipping any that are already in the history. The scraped offers
+	 * have no slot or time of their own, so they are told apart by what's in their row: the trade (buy or sell,
+	 * quantity and price) and how many identical rows are above them. The tab lists the most recent trades first, so
+	 * an offer with n identical rows above it is taken to be in the history already if the history has more than n
+	 * complete offers for the same trade that could be rows in the tab, whether they came in normally or from the GE
+	 * history tab. Older offers for the same trade can't be in the tab, so they don't stop an offer from being added.
+	 *
+	 * @param offers               the offers to add, in the order they are in the tab
+	 * @param identicalOffersAbove for each offer, how many offers for the same trade are above it in the tab
+	 * @param oldestOfferInTab     the time of the oldest offer that could be in the tab, null if any offer could be
+	 * @return the offers that were added
+	 */
+	public synchronized List<OfferEvent> addGeTabOffers(List<OfferEvent> offers, List<Integer> identicalOffersAbove, Instant oldestOfferInTab)
+	{
+		Map<Long, List<OfferEvent>> offersByTrade = getCompleteOffersByTrade();
+		List<OfferEvent> addedOffers = new ArrayList<>(offers.size());
+		for (int i = 0; i < offers.size(); i++)
 		{
-			OfferEvent pastOffer = compressedOfferEvents.get(i);
-			//don't just compare state because the scraped offer will only be of state BOUGHT/SOLD, whereas the offer in history
-			//might be CANCELLED_BUY/CANCELLED_SELL
-			if (offer.getPrice() == pastOffer.getPrice() && offer.getCurrentQuantityInTrade() == pastOffer.getCurrentQuantityInTrade()
-				&& offer.isBuy() == pastOffer.isBuy() && pastOffer.isComplete())
+			OfferEvent offer = offers.get(i);
+			List<OfferEvent> offersForTrade = offersByTrade.getOrDefault(tradeKey(offer), Collections.emptyList());
+			if (countOffersSince(offersForTrade, oldestOfferInTab) <= identicalOffersAbove.get(i))
+			{
+				//keeps the index up to date, so the identical offers below this one are counted with it
+				addOffer(offer);
+				addedOffers.add(offer);
+			}
+		}
+		return addedOffers;
+	}
+
+	private static int countOffersSince(List<OfferEvent> offers, Instant since)
+	{
+		if (since == null)
+		{
+			return offers.size();
+		}
+		int count = 0;
+		for (OfferEvent offer : offers)
+		{
+			if (!offer.getTime().isBefore(since))
 			{
-				matches.add(pastOffer);
 				count++;
-				if (count == limit)
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Adds the times of this history's latest complete offers to the given times, so that only the latest limit
+	 * times of every history it's called on are kept. Used to find how far back the GE history tab can go.
+	 *
+	 * @param latestTimes the latest times found so far, with the oldest at the head
+	 * @param limit       how many times to keep
+	 */
+	public synchronized void collectLatestCompleteOfferTimes(PriorityQueue<Instant> latestTimes, int limit)
+	{
+		//the offers are in time order, so once an offer is older than every time kept the rest are too
+		for (int i = compressedOfferEvents.size() - 1; i > -1 && limit > 0; i--)
+		{
+			OfferEvent offer = compressedOfferEvents.get(i);
+			if (!offer.isComplete())
+			{
+				continue;
+			}
+			if (latestTimes.size() < limit)
+			{
+				latestTimes.add(offer.getTime());
+			}
+			else if (offer.getTime().isAfter(latestTimes.peek()))
+			{
+				latestTimes.poll();
+				latestTimes.add(offer.getTime());
+			}
+			else
+			{
+				return;
+			}
+		}
+	}
+
+	private Map<Long, List<OfferEvent>> getCompleteOffersByTrade()
+	{
+		if (completeOffersByTrade == null)
+		{
+			Map<Long, List<OfferEvent>> offersByTrade = new HashMap<>();
+			for (OfferEvent offer : compressedOfferEvents)
+			{
+				if (offer.isComplete())
 				{
-					break;
+					offersByTrade.computeIfAbsent(tradeKey(offer), k -> new ArrayList<>()).add(offer);
 				}
 			}
+			completeOffersByTrade = offersByTrade;
 		}
-		return matches;
+		return completeOffersByTrade;
+	}
+
+	/**
+	 * Packs whether an offer is a buy, its price and its quantity into one key. Prices are never negative, so the
+	 * sign bit is free for whether it's a buy.
+	 */
+	private static long tradeKey(OfferEvent offer)
+	{
+		return (offer.isBuy() ? Long.MIN_VALUE : 0) | ((long) offer.getPrice() << 32) | (offer.getCurrentQuantityInTrade() & 0xFFFFFFFFL);
 	}
 
 	/**
@@ -609,6 +1143,59 @@ public class HistoryManager
 		return flips;
 	}
 
+	/**
+	 * Finds the latest buy, sell, insta buy and insta sell together in one pass back from the end of the history,
+	 * which stops as soon as all four have been found.
+	 */
+	public synchronized LatestOffers getLatestOffers()
+	{
+		LatestOffers latestOffers = new LatestOffers();
+		for (int i = compressedOfferEvents.size() - 1; i > -1 && !latestOffers.allFound(); i--)
+		{
+			OfferEvent offer = compressedOfferEvents.get(i);
+			if (offer.isBuy())
+			{
+				if (latestOffers.buy == null)
+				{
+					latestOffers.buy = offer;
+				}
+				if (offer.isMarginCheck() && latestOffers.instaBuy == null)
+				{
+					latestOffers.instaBuy = offer;
+				}
+			}
+			else
+			{
+				if (latestOffers.sell == null)
+				{
+					latestOffers.sell = offer;
+				}
+				if (offer.isMarginCheck() && latestOffers.instaSell == null)
+				{
+					latestOffers.instaSell = offer;
+				}
+			}
+		}
+		return latestOffers;
+	}
+
+	/**
+	 * The latest offers of each kind in a history, null where the history doesn't have one.
+	 */
+	@Getter
+	public static class LatestOffers
+	{
+		private OfferEvent buy;
+		private OfferEvent sell;
+		private OfferEvent instaBuy;
+		private OfferEvent instaSell;
+
+		private boolean allFound()
+		{
+			return buy != null && sell != null && instaBuy != null && instaSell != null;
+		}
+	}
+
 	public Optional<OfferEvent> getLatestOfferThatMatchesPredicate(Predicate<OfferEvent> predicate)
 	{
 		for (int i = compressedOfferEvents.size() - 1; i > -1; i--)
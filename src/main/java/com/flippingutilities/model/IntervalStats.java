@@ -0,0 +1,49 @@
+package com.flippingutilities.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * The stats of an item's trades between the start of an interval and now. They are all worked out together from the
+ * history's running totals, so getting them takes one lookup of the start of the interval rather than one per stat.
+ */
+@Data
+@AllArgsConstructor
+public class IntervalStats
+{
+	//the value of the items bought and sold that were flipped
+	long flippedExpense;
+	long flippedRevenue;
+	//the value of all the items bought and sold
+	long totalExpense;
+	long totalRevenue;
+	long itemsBought;
+	long itemsSold;
+	long itemsFlipped;
+	int flipCount;
+	//the time of the last trade in the interval, null if there were no trades
+	Instant lastTradeTime;
+
+	public long getProfit()
+	{
+		return flippedRevenue - flippedExpense;
+	}
+
+	/**
+	 * @return the profit as a percentage of the value of the items bought that were flipped
+	 */
+	public float getRoi()
+	{
+		return flippedExpense > 0 ? (float) getProfit() / flippedExpense * 100 : 0;
+	}
+
+	/**
+	 * @return whether there were items both bought and sold in the interval
+	 */
+	public boolean hasBeenBoughtAndSold()
+	{
+		return flippedExpense != 0 && flippedRevenue != 0;
+	}
+}
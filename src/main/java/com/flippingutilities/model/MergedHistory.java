@@ -0,0 +1,94 @@
+package com.flippingutilities.model;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+
+/**
+ * A time ordered view of the offers of several histories, such as the histories an account wide item is made from.
+ * Every history is already in time order, so the view merges them as it's iterated instead of copying their offers
+ * into one list and sorting it. Nothing is copied, so the view reflects the histories as they are when it's read.
+ */
+public class MergedHistory implements Iterable<OfferEvent>
+{
+	private final List<List<OfferEvent>> offerLists;
+
+	public MergedHistory(List<HistoryManager> histories)
+	{
+		this.offerLists = histories.stream().map(HistoryManager::getCompressedOfferEvents).collect(Collectors.toList());
+	}
+
+	public int size()
+	{
+		return offerLists.stream().mapToInt(List::size).sum();
+	}
+
+	@Override
+	public Iterator<OfferEvent> iterator()
+	{
+		return new MergingIterator();
+	}
+
+	/**
+	 * Keeps a cursor into each history in a heap ordered by the time of the offer each cursor is on, so the next
+	 * offer is always at the top of the heap.
+	 */
+	private class MergingIterator implements Iterator<OfferEvent>
+	{
+		private final PriorityQueue<Cursor> cursors;
+
+		private MergingIterator()
+		{
+			this.cursors = new PriorityQueue<>(Math.max(1, offerLists.size()), (c1, c2) -> c1.current().compareTime(c2.current()));
+			for (List<OfferEvent> offers : offerLists)
+			{
+				if (!offers.isEmpty())
+				{
+					cursors.add(new Cursor(offers));
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return !cursors.isEmpty();
+		}
+
+		@Override
+		public OfferEvent next()
+		{
+			Cursor cursor = cursors.poll();
+			if (cursor == null)
+			{
+				throw new NoSuchElementException();
+			}
+
+			OfferEvent offer = cursor.current();
+			cursor.idx++;
+			if (cursor.idx != cursor.offers.size())
+			{
+				cursors.add(cursor);
+			}
+			return offer;
+		}
+	}
+
+	private static class Cursor
+	{
+		private final List<OfferEvent> offers;
+		private int idx;
+
+		private Cursor(List<OfferEvent> offers)
+		{
+			this.offers = offers;
+		}
+
+		private OfferEvent current()
+		{
+			return offers.get(idx);
+		}
+	}
+}
@@ -28,8 +28,10 @@ package com.flippingutilities.model;
 
 
 import com.google.gson.annotations.SerializedName;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 import net.runelite.api.GrandExchangeOffer;
 import net.runelite.api.GrandExchangeOfferState;
 import net.runelite.api.events.GrandExchangeOfferChanged;
@@ -43,33 +45,47 @@ import java.time.temporal.ChronoUnit;
  * belonging to the same trade as it.
  */
 @Data
-@AllArgsConstructor
 public class OfferEvent
 {
-	@SerializedName("b")
-	private boolean buy;
+	//a history can hold hundreds of thousands of offers, so rather than an Instant, an enum reference and a field per
+	//flag, the time, state, slot and flags are packed into primitives. Their getters and setters take and return the
+	//usual types. The persisted format is unaffected as it's written by OfferEventTypeAdapter.
+	private static final GrandExchangeOfferState[] STATES = GrandExchangeOfferState.values();
+	private static final long NO_TIME = Long.MIN_VALUE;
+	private static final byte NO_STATE = -1;
+	private static final byte BUY_FLAG = 1;
+	private static final byte VALID_FLAG = 1 << 1;
+	private static final byte BEFORE_LOGIN_FLAG = 1 << 2;
+
 	@SerializedName("id")
 	private int itemId;
 	@SerializedName("cQIT")
 	private int currentQuantityInTrade;
 	@SerializedName("p")
 	private int price;
-	@SerializedName("t")
-	private Instant time;
-	@SerializedName("s")
-	private int slot;
-	@SerializedName("st")
-	private GrandExchangeOfferState state;
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private long epochSecond;
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private int nano;
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private byte slot;
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private byte state;
 	@SerializedName("tAA")
 	private int tickArrivedAt;
 	@SerializedName("tSFO")
 	private int ticksSinceFirstOffer;
 	@SerializedName("tQIT")
 	private int totalQuantityInTrade;
-	//States that determine if the offer is appurtenant to the current scope of the panel.
+	//b, vSQ and beforeLogin. vSQ states that determine if the offer is appurtenant to the current scope of the panel.
 	//The states change dependent on user-selected removals.
-	@SerializedName("vSQ")
-	private boolean validOfferEvent;
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private byte flags;
 	/**
 	 * a offer always belongs to a flipping item. Every flipping item was flipped by an account and only one account and
 	 * has a flipped by attribute. So, the reason this attribute is here is because during the process of creating
@@ -78,14 +94,124 @@ public class OfferEvent
 	 * differentiate offer. This functionality is currently only used in getFlips as, when getting the flips for the
 	 * account wide list, you don't want to match offers from different accounts!
 	 */
+	@Setter(AccessLevel.NONE)
 	private transient String madeBy;
 
-	private transient boolean beforeLogin;
 	//only used in theGeHistoryTabOfferPanel cause i don't want to pass the itemmanager down that far just to resolve item name from an id.
 	private transient String itemName;
 	//used in the live slot view to show what price something was listed at
 	private transient int listedPrice;
 
+	public OfferEvent(boolean buy, int itemId, int currentQuantityInTrade, int price, Instant time, int slot,
+					  GrandExchangeOfferState state, int tickArrivedAt, int ticksSinceFirstOffer, int totalQuantityInTrade,
+					  boolean validOfferEvent, String madeBy, boolean beforeLogin, String itemName, int listedPrice)
+	{
+		this.itemId = itemId;
+		this.currentQuantityInTrade = currentQuantityInTrade;
+		this.price = price;
+		this.tickArrivedAt = tickArrivedAt;
+		this.ticksSinceFirstOffer = ticksSinceFirstOffer;
+		this.totalQuantityInTrade = totalQuantityInTrade;
+		this.itemName = itemName;
+		this.listedPrice = listedPrice;
+		setBuy(buy);
+		setTime(time);
+		setSlot(slot);
+		setState(state);
+		setValidOfferEvent(validOfferEvent);
+		setMadeBy(madeBy);
+		setBeforeLogin(beforeLogin);
+	}
+
+	public Instant getTime()
+	{
+		return epochSecond == NO_TIME ? null : Instant.ofEpochSecond(epochSecond, nano);
+	}
+
+	public void setTime(Instant time)
+	{
+		epochSecond = time == null ? NO_TIME : time.getEpochSecond();
+		nano = time == null ? 0 : time.getNano();
+	}
+
+	/**
+	 * Compares the times of two offers without creating Instants for them. Offers without a time come first.
+	 */
+	public int compareTime(OfferEvent other)
+	{
+		int comparison = Long.compare(epochSecond, other.epochSecond);
+		return comparison != 0 ? comparison : Integer.compare(nano, other.nano);
+	}
+
+	public boolean isAfter(Instant time)
+	{
+		return epochSecond > time.getEpochSecond() || (epochSecond == time.getEpochSecond() && nano > time.getNano());
+	}
+
+	public int getSlot()
+	{
+		return slot;
+	}
+
+	public void setSlot(int slot)
+	{
+		this.slot = (byte) slot;
+	}
+
+	public GrandExchangeOfferState getState()
+	{
+		return state == NO_STATE ? null : STATES[state];
+	}
+
+	public void setState(GrandExchangeOfferState state)
+	{
+		this.state = state == null ? NO_STATE : (byte) state.ordinal();
+	}
+
+	public boolean isBuy()
+	{
+		return (flags & BUY_FLAG) != 0;
+	}
+
+	public void setBuy(boolean buy)
+	{
+		setFlag(BUY_FLAG, buy);
+	}
+
+	public boolean isValidOfferEvent()
+	{
+		return (flags & VALID_FLAG) != 0;
+	}
+
+	public void setValidOfferEvent(boolean validOfferEvent)
+	{
+		setFlag(VALID_FLAG, validOfferEvent);
+	}
+
+	public boolean isBeforeLogin()
+	{
+		return (flags & BEFORE_LOGIN_FLAG) != 0;
+	}
+
+	public void setBeforeLogin(boolean beforeLogin)
+	{
+		setFlag(BEFORE_LOGIN_FLAG, beforeLogin);
+	}
+
+	private void setFlag(byte flag, boolean value)
+	{
+		flags = (byte) (value ? flags | flag : flags & ~flag);
+	}
+
+	/**
+	 * Account names are interned as every offer of an account refers to its name, and the names come from a
+	 * different place each time an account's trades are loaded.
+	 */
+	public void setMadeBy(String madeBy)
+	{
+		this.madeBy = madeBy == null ? null : madeBy.intern();
+	}
+
 	/**
 	 * Returns a boolean representing that the offer is a complete offer. A complete offer signifies
 	 * the end of that trade, thus the end of the slot's history. The HistoryManager uses this to decide when
@@ -96,15 +222,15 @@ public class OfferEvent
 	public boolean isComplete()
 	{
 		return
-			state == GrandExchangeOfferState.BOUGHT ||
-				state == GrandExchangeOfferState.SOLD ||
-				state == GrandExchangeOfferState.CANCELLED_BUY ||
-				state == GrandExchangeOfferState.CANCELLED_SELL;
+			getState() == GrandExchangeOfferState.BOUGHT ||
+				getState() == GrandExchangeOfferState.SOLD ||
+				getState() == GrandExchangeOfferState.CANCELLED_BUY ||
+				getState() == GrandExchangeOfferState.CANCELLED_SELL;
 	}
 
 	public boolean isCancelled()
 	{
-		return state == GrandExchangeOfferState.CANCELLED_BUY || state == GrandExchangeOfferState.CANCELLED_SELL;
+		return getState() == GrandExchangeOfferState.CANCELLED_BUY || getState() == GrandExchangeOfferState.CANCELLED_SELL;
 	}
 
 	/**
@@ -113,7 +239,7 @@ public class OfferEvent
 	 */
 	public boolean isRedundantEventBeforeOfferCompletion()
 	{
-		return (state == GrandExchangeOfferState.BUYING || state == GrandExchangeOfferState.SELLING) && currentQuantityInTrade == totalQuantityInTrade;
+		return (getState() == GrandExchangeOfferState.BUYING || getState() == GrandExchangeOfferState.SELLING) && currentQuantityInTrade == totalQuantityInTrade;
 	}
 
 	/**
@@ -125,7 +251,7 @@ public class OfferEvent
 	 */
 	public boolean isMarginCheck()
 	{
-		return (state == GrandExchangeOfferState.BOUGHT || state == GrandExchangeOfferState.SOLD) && totalQuantityInTrade == 1
+		return (getState() == GrandExchangeOfferState.BOUGHT || getState() == GrandExchangeOfferState.SOLD) && totalQuantityInTrade == 1
 			&& ticksSinceFirstOffer <= 2;
 	}
 
@@ -136,7 +262,7 @@ public class OfferEvent
 	 */
 	public boolean isCausedByEmptySlot()
 	{
-		return (itemId == 0 || state == GrandExchangeOfferState.EMPTY);
+		return (itemId == 0 || getState() == GrandExchangeOfferState.EMPTY);
 	}
 
 	/**
@@ -154,21 +280,24 @@ public class OfferEvent
 
 	public OfferEvent clone()
 	{
-		return new OfferEvent(buy,
+		OfferEvent clone = new OfferEvent(isBuy(),
 			itemId,
 			currentQuantityInTrade,
 			price,
-			time,
+			null,
 			slot,
-			state,
+			getState(),
 			tickArrivedAt,
 			ticksSinceFirstOffer,
 			totalQuantityInTrade,
-			validOfferEvent,
+			isValidOfferEvent(),
 			madeBy,
-			beforeLogin,
+			isBeforeLogin(),
 			itemName,
 				listedPrice);
+		clone.epochSecond = epochSecond;
+		clone.nano = nano;
+		return clone;
 	}
 
 	public boolean equals(Object other)
@@ -188,8 +317,9 @@ public class OfferEvent
 		return isDuplicate(otherOffer)
 			&& tickArrivedAt == otherOffer.tickArrivedAt
 			&& ticksSinceFirstOffer == otherOffer.ticksSinceFirstOffer
-			&& time.equals(otherOffer.time)
-			&& validOfferEvent == otherOffer.validOfferEvent;
+			&& epochSecond == otherOffer.epochSecond
+			&& nano == otherOffer.nano
+			&& isValidOfferEvent() == otherOffer.isValidOfferEvent();
 	}
 
 	/**
@@ -203,9 +333,9 @@ public class OfferEvent
 	 */
 	public boolean isDuplicate(OfferEvent other)
 	{
-		return state == other.getState()
+		return state == other.state
 			&& currentQuantityInTrade == other.getCurrentQuantityInTrade()
-			&& slot == other.getSlot()
+			&& slot == other.slot
 			&& totalQuantityInTrade == other.getTotalQuantityInTrade() && itemId == other.getItemId()
 			&& price == other.getPrice();
 	}
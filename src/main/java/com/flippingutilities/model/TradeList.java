@@ -0,0 +1,363 @@
+package com.flippingutilities.model;
+
+import java.util.AbstractSequentialList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+/**
+ * An account's trades list, with its most recently traded items at the front. Along with the list, it keeps an index of
+ * its items by item id, so finding the item an offer is for and moving it to the front of the list takes the same time
+ * no matter how many items the account has. It's stored like any other list, so the index is built up again as the
+ * items are read back.
+ * <p>
+ * It isn't thread safe. Once an account is loaded its trades list belongs to the offer worker in
+ * {@link com.flippingutilities.controller.NewOfferEventPipelineHandler}, which adds the offers to it and is the only
+ * thread that changes it. Anything else that changes it, or looks items up in it, does so in a task run on the worker
+ * with runAfterQueuedOffers, and the panels copy it there before rebuilding from it.
+ */
+public class TradeList extends AbstractSequentialList<FlippingItem>
+{
+	//the list is circular and starts and ends at this node, which has no item
+	private final Node head = new Node(null);
+	//the node of the item closest to the front for each item id
+	private final Map<Integer, Node> nodesById = new HashMap<>();
+	private int size;
+	//whether more than one item has had the same id, which trades lists from older versions can have.
+	private boolean hasDuplicateIds;
+
+	public TradeList()
+	{
+		head.previous = head;
+		head.next = head;
+	}
+
+	public TradeList(Collection<FlippingItem> items)
+	{
+		this();
+		addAll(items);
+	}
+
+	/**
+	 * Finds the item with the given id. If there is more than one, it's the one closest to the front, same as going
+	 * through the list would find.
+	 */
+	public Optional<FlippingItem> findItem(int itemId)
+	{
+		Node node = nodesById.get(itemId);
+		return node == null ? Optional.empty() : Optional.of(node.item);
+	}
+
+	/**
+	 * Moves an item in the list to the front of it.
+	 *
+	 * @param item the item to move
+	 */
+	public void moveToFront(FlippingItem item)
+	{
+		Node node = nodeOf(item);
+		if (node == null)
+		{
+			throw new NoSuchElementException();
+		}
+		if (node == head.next)
+		{
+			return;
+		}
+
+		unlink(node);
+		link(node, head.next);
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public boolean contains(Object o)
+	{
+		return o instanceof FlippingItem && nodeOf((FlippingItem) o) != null;
+	}
+
+	@Override
+	public boolean remove(Object o)
+	{
+		Node node = o instanceof FlippingItem ? nodeOf((FlippingItem) o) : null;
+		if (node == null)
+		{
+			return false;
+		}
+		unlink(node);
+		return true;
+	}
+
+	@Override
+	public void clear()
+	{
+		head.previous = head;
+		head.next = head;
+		nodesById.clear();
+		size = 0;
+		hasDuplicateIds = false;
+		modCount++;
+	}
+
+	@Override
+	public ListIterator<FlippingItem> listIterator(int index)
+	{
+		if (index < 0 || index > size)
+		{
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+
+		//walk from whichever end is closer
+		Node next;
+		if (index < size / 2)
+		{
+			next = head.next;
+			for (int i = 0; i < index; i++)
+			{
+				next = next.next;
+			}
+		}
+		else
+		{
+			next = head;
+			for (int i = size; i > index; i--)
+			{
+				next = next.previous;
+			}
+		}
+		return new Itr(next, index);
+	}
+
+	private Node nodeOf(FlippingItem item)
+	{
+		Node node = nodesById.get(item.getItemId());
+		if (node == null || node.item == item)
+		{
+			return node;
+		}
+
+		//the item isn't the first with its id, so it has to be looked for
+		for (Node n = node.next; n != head; n = n.next)
+		{
+			if (n.item == item)
+			{
+				return n;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Adds a node to the list before the given node.
+	 */
+	private void link(Node node, Node next)
+	{
+		node.next = next;
+		node.previous = next.previous;
+		next.previous.next = node;
+		next.previous = node;
+		size++;
+		modCount++;
+		index(node);
+	}
+
+	private void unlink(Node node)
+	{
+		node.previous.next = node.next;
+		node.next.previous = node.previous;
+		size--;
+		modCount++;
+		unindex(node);
+	}
+
+	private void index(Node node)
+	{
+		Node indexed = nodesById.putIfAbsent(node.item.getItemId(), node);
+		if (indexed != null)
+		{
+			hasDuplicateIds = true;
+			if (isBefore(node, indexed))
+			{
+				nodesById.put(node.item.getItemId(), node);
+			}
+		}
+	}
+
+	private boolean isBefore(Node node, Node other)
+	{
+		if (node == head.next || node.next == other)
+		{
+			return true;
+		}
+
+		for (Node n = head.next; n != head; n = n.next)
+		{
+			if (n == node || n == other)
+			{
+				return n == node;
+			}
+		}
+		return false;
+	}
+
+	private void unindex(Node node)
+	{
+		int itemId = node.item.getItemId();
+		if (nodesById.get(itemId) != node)
+		{
+			return;
+		}
+
+		nodesById.remove(itemId);
+		if (hasDuplicateIds)
+		{
+			for (Node n = head.next; n != head; n = n.next)
+			{
+				if (n != node && n.item.getItemId() == itemId)
+				{
+					nodesById.put(itemId, n);
+					return;
+				}
+			}
+		}
+	}
+
+	private static class Node
+	{
+		private FlippingItem item;
+		private Node previous;
+		private Node next;
+
+		private Node(FlippingItem item)
+		{
+			this.item = item;
+		}
+	}
+
+	private class Itr implements ListIterator<FlippingItem>
+	{
+		private Node next;
+		private int nextIndex;
+		private Node lastReturned;
+		private int expectedModCount = modCount;
+
+		private Itr(Node next, int nextIndex)
+		{
+			this.next = next;
+			this.nextIndex = nextIndex;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return next != head;
+		}
+
+		@Override
+		public FlippingItem next()
+		{
+			checkForComodification();
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+			lastReturned = next;
+			next = next.next;
+			nextIndex++;
+			return lastReturned.item;
+		}
+
+		@Override
+		public boolean hasPrevious()
+		{
+			return next.previous != head;
+		}
+
+		@Override
+		public FlippingItem previous()
+		{
+			checkForComodification();
+			if (!hasPrevious())
+			{
+				throw new NoSuchElementException();
+			}
+			next = next.previous;
+			lastReturned = next;
+			nextIndex--;
+			return lastReturned.item;
+		}
+
+		@Override
+		public int nextIndex()
+		{
+			return nextIndex;
+		}
+
+		@Override
+		public int previousIndex()
+		{
+			return nextIndex - 1;
+		}
+
+		@Override
+		public void remove()
+		{
+			checkForComodification();
+			if (lastReturned == null)
+			{
+				throw new IllegalStateException();
+			}
+			if (lastReturned == next)
+			{
+				next = next.next;
+			}
+			else
+			{
+				nextIndex--;
+			}
+			unlink(lastReturned);
+			lastReturned = null;
+			expectedModCount = modCount;
+		}
+
+		@Override
+		public void set(FlippingItem item)
+		{
+			checkForComodification();
+			if (lastReturned == null)
+			{
+				throw new IllegalStateException();
+			}
+			unindex(lastReturned);
+			lastReturned.item = item;
+			index(lastReturned);
+		}
+
+		@Override
+		public void add(FlippingItem item)
+		{
+			checkForComodification();
+			link(new Node(item), next);
+			nextIndex++;
+			lastReturned = null;
+			expectedModCount = modCount;
+		}
+
+		private void checkForComodification()
+		{
+			if (modCount != expectedModCount)
+			{
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+}
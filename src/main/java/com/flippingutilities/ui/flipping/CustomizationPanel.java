@@ -97,6 +97,7 @@ public class CustomizationPanel extends JPanel {
 
     private void onSectionChange() {
         rebuild(sections);
+        plugin.getFlippingPanel().invalidatePanels();
         plugin.getFlippingPanel().rebuild(plugin.viewTradesForCurrentView());
         plugin.getDataHandler().markDataAsHavingChanged(FlippingPlugin.ACCOUNT_WIDE);
     }
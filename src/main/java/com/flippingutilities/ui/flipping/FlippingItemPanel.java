@@ -788,10 +788,11 @@ public class FlippingItemPanel extends JPanel
 		Optional<OfferEvent> latestBuy = flippingItem.getLatestBuy();
 		Optional<OfferEvent> latestSell = flippingItem.getLatestSell();
 
-		Optional<Integer> profitEach = flippingItem.getCurrentProfitEach();
-		Optional<Integer> potentialProfit = flippingItem.getPotentialProfit(plugin.getConfig().marginCheckLoss(), plugin.getConfig().geLimitProfit());
+		boolean hasMargin = flippingItem.hasMargin();
+		int profitEach = flippingItem.getCurrentProfitEach();
+		int potentialProfit = flippingItem.getPotentialProfit(plugin.getConfig().marginCheckLoss(), plugin.getConfig().geLimitProfit());
 
-		Optional<Float> roi =  flippingItem.getCurrentRoi();
+		float roi =  flippingItem.getCurrentRoi();
 
 		instaSellVal.setText(latestMarginCheckSell.isPresent() ? String.format(NUM_FORMAT, latestMarginCheckSell.get().getPrice()) + " gp":"N/A");
 		instaBuyVal.setText(latestMarginCheckBuy.isPresent() ? String.format(NUM_FORMAT, latestMarginCheckBuy.get().getPrice()) + " gp" : "N/A");
@@ -799,12 +800,12 @@ public class FlippingItemPanel extends JPanel
 		latestBuyPriceVal.setText(latestBuy.isPresent() ? String.format(NUM_FORMAT, latestBuy.get().getPrice()) + " gp" : "N/A");
 		latestSellPriceVal.setText(latestSell.isPresent() ? String.format(NUM_FORMAT, latestSell.get().getPrice()) + " gp" : "N/A");
 
-		profitEachVal.setText(profitEach.isPresent()? QuantityFormatter.quantityToRSDecimalStack(profitEach.get()) + " gp": "N/A");
-		potentialProfitVal.setText(potentialProfit.isPresent() ? QuantityFormatter.quantityToRSDecimalStack(potentialProfit.get()) + " gp": "N/A");
+		profitEachVal.setText(hasMargin? QuantityFormatter.quantityToRSDecimalStack(profitEach) + " gp": "N/A");
+		potentialProfitVal.setText(hasMargin ? QuantityFormatter.quantityToRSDecimalStack(potentialProfit) + " gp": "N/A");
 
-		roiLabelVal.setText(roi.isPresent()? String.format("%.2f", roi.get()) + "%" : "N/A");
+		roiLabelVal.setText(hasMargin? String.format("%.2f", roi) + "%" : "N/A");
 		//Color gradient red-yellow-green depending on ROI.
-		roiLabelVal.setForeground(UIUtilities.gradiatePercentage(roi.orElse(0F), plugin.getConfig().roiGradientMax()));
+		roiLabelVal.setForeground(UIUtilities.gradiatePercentage(hasMargin ? roi : 0F, plugin.getConfig().roiGradientMax()));
 
 		if (flippingItem.getTotalGELimit() > 0) {
 			geLimitVal.setText(String.format(NUM_FORMAT, flippingItem.getRemainingGeLimit()));
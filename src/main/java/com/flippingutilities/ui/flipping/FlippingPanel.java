@@ -81,6 +81,13 @@ public class FlippingPanel extends JPanel
 	//Keeps track of all items currently displayed on the panel.
 	private ArrayList<FlippingItemPanel> activePanels = new ArrayList<>();
 
+	//Panels that have been made for the items that should have panels, by item id, so they can be reused by later
+	//rebuilds instead of being made again. Only used on the EDT.
+	private final Map<Integer, FlippingItemPanel> panelsByItemId = new HashMap<>();
+
+	//whether the offer editor was added below the panels in the last rebuild
+	private boolean offerEditorShown;
+
 	@Getter
 	JLabel resetIcon;
 
@@ -161,10 +168,10 @@ public class FlippingPanel extends JPanel
 					//If the user pressed "Yes"
 					if (result == JOptionPane.YES_OPTION)
 					{
+						//the panels are rebuilt once the items have been hidden
 						plugin.setAllFlippingItemsAsHidden();
 						setItemHighlighted(false);
 						cardLayout.show(flippingItemContainer, WELCOME_PANEL);
-						rebuild(plugin.viewTradesForCurrentView());
 					}
 				}
 			}
@@ -212,33 +219,57 @@ public class FlippingPanel extends JPanel
 	/**
 	 * Creates and renders the panel using the flipping items in the listed parameter.
 	 * An item is only displayed if it contains a valid OfferInfo object in its history.
+	 * <p>
+	 * Panels made by earlier rebuilds are reused for the same items and just have their values updated. The panels
+	 * on the page are only removed and added again if they have changed or been reordered.
 	 *
 	 * @param flippingItems List of flipping items that the rebuild will render.
 	 */
 	public void rebuild(List<FlippingItem> flippingItems)
+	{
+		//trades lists are only changed on the offer worker, so the items are copied there to be read on the EDT
+		plugin.getNewOfferEventPipelineHandler().runAfterQueuedOffers(() ->
+			rebuildPanels(flippingItems == null ? null : new ArrayList<>(flippingItems)));
+	}
+
+	private void rebuildPanels(List<FlippingItem> flippingItems)
 	{
 		SwingUtilities.invokeLater(() ->
 		{
-			activePanels.clear();
-			flippingItemsPanel.removeAll();
 			if (flippingItems == null)
 			{
+				activePanels.clear();
+				flippingItemsPanel.removeAll();
+				offerEditorShown = false;
 				cardLayout.show(flippingItemContainer, WELCOME_PANEL);
 				return;
 			}
 			int vGap = 8;
 			cardLayout.show(flippingItemContainer, ITEMS_PANEL);
-			List<FlippingItem> sortedItems = sortTradeList(flippingItems);
-			List<FlippingItem> itemsThatShouldHavePanels = sortedItems.stream().filter(item -> item.getValidFlippingPanelItem()).collect(Collectors.toList());
+			boolean onlyFavorites = "favorite".equals(selectedSort);
+			List<FlippingItem> itemsThatShouldHavePanels = flippingItems.stream().filter(item -> item.getValidFlippingPanelItem() && (!onlyFavorites || item.isFavorite())).collect(Collectors.toList());
 			paginator.updateTotalPages(itemsThatShouldHavePanels.size());
-			List<FlippingItem> itemsOnCurrentPage = paginator.getCurrentPageItems(itemsThatShouldHavePanels);
-			List<FlippingItemPanel> newPanels = itemsOnCurrentPage.stream().map(item -> new FlippingItemPanel(plugin, itemManager.getImage(item.getItemId()), item)).collect(Collectors.toList());
+			List<FlippingItem> itemsOnCurrentPage = paginator.getCurrentPageItems(itemsThatShouldHavePanels, sortOrder(itemsThatShouldHavePanels));
+			List<FlippingItemPanel> newPanels = itemsOnCurrentPage.stream().map(this::getPanel).collect(Collectors.toList());
+			removeUnusedPanels(itemsThatShouldHavePanels);
+
+			if (newPanels.equals(activePanels) && !offerEditorShown && !isItemHighlighted())
+			{
+				//same panels in the same order, nothing has to be added or removed
+				revalidate();
+				repaint();
+				return;
+			}
+
+			activePanels.clear();
+			flippingItemsPanel.removeAll();
 			flippingItemsPanel.add(Box.createVerticalStrut(vGap));
 			UIUtilities.stackPanelsVertically((List) newPanels, flippingItemsPanel, vGap);
 			flippingItemsPanel.add(Box.createVerticalStrut(vGap));
 			activePanels.addAll(newPanels);
 
-			if (isItemHighlighted()) {
+			offerEditorShown = isItemHighlighted();
+			if (offerEditorShown) {
 				offerEditorContainerPanel = new OfferEditorContainerPanel(plugin);
 				offerEditorContainerPanel.selectPriceEditor();
 				flippingItemsPanel.add(offerEditorContainerPanel);
@@ -256,87 +287,103 @@ public class FlippingPanel extends JPanel
 
 	}
 
+	/**
+	 * Gets the panel made for the item by an earlier rebuild, updating its values, or makes one if there isn't one.
+	 * A panel is only reused for the exact same FlippingItem, as the account wide list makes new ones when it's
+	 * rebuilt and search results are made up of new ones.
+	 */
+	private FlippingItemPanel getPanel(FlippingItem item)
+	{
+		FlippingItemPanel panel = panelsByItemId.get(item.getItemId());
+		if (panel != null && panel.getFlippingItem() == item)
+		{
+			panel.setValueLabels();
+			panel.updateTimerDisplays();
+			return panel;
+		}
+
+		panel = new FlippingItemPanel(plugin, itemManager.getImage(item.getItemId()), item);
+		panelsByItemId.put(item.getItemId(), panel);
+		return panel;
+	}
+
+	/**
+	 * Drops the cached panels of items that no longer have panels, so the cache doesn't hold on to them.
+	 */
+	private void removeUnusedPanels(List<FlippingItem> itemsThatShouldHavePanels)
+	{
+		Set<FlippingItem> items = Collections.newSetFromMap(new IdentityHashMap<>());
+		items.addAll(itemsThatShouldHavePanels);
+		panelsByItemId.values().removeIf(panel -> !items.contains(panel.getFlippingItem()));
+	}
 
-	public List<FlippingItem> sortTradeList(List<FlippingItem> tradeList)
+	/**
+	 * Throws away the panels kept for reuse, so the next rebuild makes them again. Needed when what a panel shows
+	 * changes, such as when its sections are customized or the config is changed.
+	 */
+	public void invalidatePanels()
 	{
-		List<FlippingItem> result = new ArrayList<>(tradeList);
+		SwingUtilities.invokeLater(() ->
+		{
+			panelsByItemId.clear();
+			activePanels.clear();
+		});
+	}
 
-		if (selectedSort == null || result.isEmpty())
+	/**
+	 * Gets the order the selected sort puts items in, as a comparison of their indexes in the list. The key each item
+	 * is sorted by is worked out once up front, rather than every time two items are compared.
+	 *
+	 * @param items the items to sort
+	 * @return the order of the items' indexes, or null if they should stay in the order they're in
+	 */
+	private Comparator<Integer> sortOrder(List<FlippingItem> items)
+	{
+		if (selectedSort == null || items.isEmpty())
 		{
-			return result;
+			return null;
 		}
 
 		switch (selectedSort)
 		{
 			case "Most Recent":
-				result.sort((item1, item2) ->
-				{
-					if (item1 == null || item2 == null)
-					{
-						return -1;
-					}
-
-					return item1.getLatestActivityTime().compareTo(item2.getLatestActivityTime());
-				});
-				break;
-			case "favorite":
-				result = result.stream().filter(item -> item.isFavorite()).collect(Collectors.toList());
-				break;
+				return Comparator.comparing(i -> items.get(i).getLatestActivityTime());
 			case "profit":
-				result.sort((item1, item2) ->
-				{
-					if (item1 == null || item2 == null)
-					{
-						return -1;
-					}
-					if ((item1.getLatestInstaBuy().isPresent() && item1.getLatestInstaSell().isPresent()) && (!item2.getLatestInstaSell().isPresent() || !item2.getLatestInstaBuy().isPresent()))
-					{
-						return -1;
-					}
-
-					if ((item2.getLatestInstaBuy().isPresent() && item2.getLatestInstaSell().isPresent()) && (!item1.getLatestInstaSell().isPresent() || !item1.getLatestInstaBuy().isPresent()))
-					{
-						return 1;
-					}
-
-					if ((!item2.getLatestInstaBuy().isPresent() || !item2.getLatestInstaSell().isPresent()) && (!item1.getLatestInstaSell().isPresent() || !item1.getLatestInstaBuy().isPresent()))
-					{
-						return 0;
-					}
-
-					boolean shouldIncludeMarginCheck = plugin.getConfig().marginCheckLoss();
-					boolean shouldUseRemainingGeLimit = plugin.getConfig().geLimitProfit();
-					return item2.getPotentialProfit(shouldIncludeMarginCheck, shouldUseRemainingGeLimit).orElse(0) - item1.getPotentialProfit(shouldIncludeMarginCheck, shouldUseRemainingGeLimit).orElse(0);
-				});
-				break;
 			case "roi":
-				result.sort((item1, item2) -> {
-					if ((item1.getLatestInstaBuy().isPresent() && item1.getLatestInstaSell().isPresent()) && (!item2.getLatestInstaSell().isPresent() || !item2.getLatestInstaBuy().isPresent()))
-					{
-						return -1;
-					}
-
-					if ((item2.getLatestInstaBuy().isPresent() && item2.getLatestInstaSell().isPresent()) && (!item1.getLatestInstaSell().isPresent() || !item1.getLatestInstaBuy().isPresent()))
-					{
-						return 1;
-					}
-
-					if ((!item2.getLatestInstaBuy().isPresent() || !item2.getLatestInstaSell().isPresent()) && (!item1.getLatestInstaSell().isPresent() || !item1.getLatestInstaBuy().isPresent()))
-					{
-						return 0;
-					}
-
-					int item1ProfitEach = item1.getLatestInstaSell().get().getPrice() - item1.getLatestInstaBuy().get().getPrice();
-					int item2ProfitEach = item2.getLatestInstaSell().get().getPrice() - item2.getLatestInstaBuy().get().getPrice();
+				double[] keys = new double[items.size()];
+				for (int i = 0; i < keys.length; i++)
+				{
+					keys[i] = sortKey(items.get(i));
+				}
+				//highest first
+				return (i, j) -> Double.compare(keys[j], keys[i]);
+			default:
+				return null;
+		}
+	}
 
-					float item1roi = (float) item1ProfitEach / item1.getLatestInstaBuy().get().getPrice() * 100;
-					float item2roi = (float) item2ProfitEach / item2.getLatestInstaBuy().get().getPrice() * 100;
+	/**
+	 * Works out what an item is sorted by for the profit and ROI sorts. Items without both an insta buy and an insta
+	 * sell go below all the ones that have them. ROI is negated, as it's sorted lowest first.
+	 */
+	private double sortKey(FlippingItem item)
+	{
+		if (!item.hasMargin())
+		{
+			return Double.NEGATIVE_INFINITY;
+		}
 
-					return Float.compare(item1roi, item2roi);
-				});
-				break;
+		if (selectedSort.equals("profit"))
+		{
+			boolean shouldIncludeMarginCheck = plugin.getConfig().marginCheckLoss();
+			boolean shouldUseRemainingGeLimit = plugin.getConfig().geLimitProfit();
+			return item.getPotentialProfit(shouldIncludeMarginCheck, shouldUseRemainingGeLimit);
 		}
-		return result;
+
+		//the roi sort has always gone by the insta sell minus the insta buy, over the insta buy
+		int profitEach = -item.getCurrentProfitEach();
+		float roi = (float) profitEach / item.getLatestInstaBuy().get().getPrice() * 100;
+		return -roi;
 	}
 
 	//Clears all other items, if the item in the offer setup slot is presently available on the panel
@@ -363,12 +410,16 @@ public class FlippingPanel extends JPanel
 
 	/**
 	 * Checks if a FlippingItem's margins (buy and sell price) are outdated and updates the tooltip.
-	 * This method is called in FlippingPlugin every second by the scheduler.
+	 * This method is called on the EDT every second by the UiTickScheduler, and only updates the panels on screen.
 	 */
 	public void updateTimerDisplays()
 	{
 		for (FlippingItemPanel activePanel : activePanels)
 		{
+			if (!activePanel.isShowing())
+			{
+				continue;
+			}
 			activePanel.updateTimerDisplays();
 			activePanel.updateWikiTimeLabels();
 		}
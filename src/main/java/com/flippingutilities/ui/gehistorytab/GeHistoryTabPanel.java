@@ -3,6 +3,7 @@ package com.flippingutilities.ui.gehistorytab;
 import com.flippingutilities.controller.FlippingPlugin;
 import com.flippingutilities.model.OfferEvent;
 import com.flippingutilities.ui.uiutilities.UIUtilities;
+import com.flippingutilities.utilities.GeHistoryTabExtractor;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.widgets.Widget;
 import net.runelite.client.ui.ColorScheme;
@@ -96,11 +97,19 @@ public class GeHistoryTabPanel extends JPanel
 	}
 
 	private void addSelectedOffers() {
-		List<OfferEvent> selectedOffers = selectedOfferIds.stream().map(idx -> offersFromHistoryTab.get(idx)).collect(Collectors.toList());
+		//in the order they're in in the tab, so identical offers are checked from the most recent one down
+		List<Integer> selectedIds = selectedOfferIds.stream().sorted().collect(Collectors.toList());
+		int[] identicalOffersAbove = GeHistoryTabExtractor.countIdenticalOffersAbove(offersFromHistoryTab);
+		List<OfferEvent> selectedOffers = selectedIds.stream().map(idx -> offersFromHistoryTab.get(idx)).collect(Collectors.toList());
+		List<Integer> selectedIdenticalOffersAbove = selectedIds.stream().map(idx -> identicalOffersAbove[idx]).collect(Collectors.toList());
 		highlightedPanels.addAll(selectedOfferIds);
-		plugin.addSelectedGeTabOffers(selectedOffers);
-		matchingOffers = offersFromHistoryTab.stream().map(o -> plugin.findOfferMatches(o,5)).collect(Collectors.toList());
-		rebuild(offersFromHistoryTab, matchingOffers, geHistoryTabWidgets, true);
+		List<OfferEvent> offers = offersFromHistoryTab;
+		Widget[] widgets = geHistoryTabWidgets;
+		//the offers are added on the offer worker, so the matches are found once they're in
+		plugin.addSelectedGeTabOffers(selectedOffers, selectedIdenticalOffersAbove, offers.size(), () -> {
+			List<List<OfferEvent>> matches = offers.stream().map(o -> plugin.findOfferMatches(o,5)).collect(Collectors.toList());
+			rebuild(offers, matches, widgets, true);
+		});
 	}
 
 	private JPanel createOfferContainer() {
@@ -0,0 +1,45 @@
+package com.flippingutilities.ui.statistics;
+
+import com.flippingutilities.model.Flip;
+import com.flippingutilities.model.FlippingItem;
+import com.flippingutilities.model.OfferEvent;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The offers and flips of an item in a time interval, as shown in the trade history of its stat item panel. They are
+ * only worked out when the trade history is opened, and are kept by the stats panel so they don't have to be worked
+ * out again until the interval or the item's offers change.
+ */
+class ItemBreakdown
+{
+	private final FlippingItem item;
+	private final Instant startOfInterval;
+	private final int historyVersion;
+
+	//latest first, as they're shown
+	@Getter
+	private final List<OfferEvent> offers;
+	@Getter
+	private final List<Flip> flips;
+
+	ItemBreakdown(FlippingItem item, Instant startOfInterval)
+	{
+		this.item = item;
+		this.startOfInterval = startOfInterval;
+		//read before the offers, so if they change while being read the breakdown just looks out of date
+		this.historyVersion = item.getHistoryVersion();
+		this.offers = new ArrayList<>(item.getIntervalHistory(startOfInterval));
+		Collections.reverse(offers);
+		this.flips = item.getFlips(startOfInterval);
+	}
+
+	boolean isUpToDate(FlippingItem item, Instant startOfInterval)
+	{
+		return this.item == item && this.startOfInterval.equals(startOfInterval) && historyVersion == item.getHistoryVersion();
+	}
+}
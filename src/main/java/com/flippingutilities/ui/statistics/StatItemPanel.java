@@ -29,6 +29,7 @@ package com.flippingutilities.ui.statistics;
 import com.flippingutilities.controller.FlippingPlugin;
 import com.flippingutilities.model.Flip;
 import com.flippingutilities.model.FlippingItem;
+import com.flippingutilities.model.IntervalStats;
 import com.flippingutilities.model.OfferEvent;
 import com.flippingutilities.ui.uiutilities.*;
 import lombok.Getter;
@@ -53,7 +54,6 @@ import java.awt.image.BufferedImage;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -79,8 +79,9 @@ public class StatItemPanel extends JPanel
 	private StatsPanel statsPanel;
 
 	private Instant startOfInterval;
-	private ArrayList<OfferEvent> tradeHistory;
-	private List<Flip> flips;
+	//the item's offers and flips in the interval, only got when its trade history is first shown
+	private ItemBreakdown breakdown;
+	private Instant lastTradeTime;
 
 	//Shows the item's profit
 	private JLabel itemProfitLabel = new JLabel();
@@ -106,6 +107,9 @@ public class StatItemPanel extends JPanel
 	private List<FlipPanel> flipPanels;
 	private List<OfferPanel> offerPanels;
 
+	//the sub info and trade history are only built when the panel is first expanded
+	private JPanel subInfoPanel;
+
 	private ItemManager itemManager;
 
 	private Paginator flipPaginator;
@@ -142,40 +146,23 @@ public class StatItemPanel extends JPanel
 		offerPaginator.setBorder(BorderFactory.createMatteBorder(0,0,3,0, ColorScheme.DARKER_GRAY_HOVER_COLOR));
 
 		startOfInterval = statsPanel.getStartOfInterval();
-		tradeHistory = flippingItem.getIntervalHistory(startOfInterval);
-		flips = flippingItem.getFlips(startOfInterval);
-		offerPaginator.updateTotalPages(tradeHistory.size());
-		flipPaginator.updateTotalPages(flips.size());
-
-
-		buildAllFlipsPanel();
-		buildAllOffersPanels();
-
-		JLabel[] descriptionLabels = {new JLabel("Total Profit: "), new JLabel("Avg. Profit ea: "), new JLabel("Avg. ROI: "), new JLabel("Last Traded: "), new JLabel("Quantity Flipped: "),
-			new JLabel(" "), new JLabel("Quantity Bought: "), new JLabel("Quantity Sold: "), new JLabel("Avg. Buy Price: "), new JLabel("Avg. Sell Price: ")};
-
-		JLabel[] valueLabels = {totalProfitValLabel, profitEachValLabel, roiValLabel, timeOfLastFlipValLabel, quantityFlipped,
-			new JLabel(" "), quantityBoughtLabel, quantitySoldLabel, avgBuyPriceValLabel,
-			avgSellPriceValLabel};
 
 		setLayout(new BorderLayout());
 
 		JPanel titlePanel = titlePanel(iconPanel(), nameAndProfitPanel(), collapseIcon());
 
-		JPanel subInfoPanel = subInfoPanel(descriptionLabels, valueLabels);
-
-		JPanel tradeHistoryPanel = tradeHistoryPanel(allOffersPanel, allFlipsPanel);
-
 		updateLabels();
 
 		//Set background and border of container with sub infos and trade history
 		subInfoAndHistoryContainer.setBackground(ColorScheme.DARKER_GRAY_COLOR);
 		subInfoAndHistoryContainer.setBorder(ITEM_INFO_BORDER);
 
-		subInfoAndHistoryContainer.add(subInfoPanel, BorderLayout.CENTER);
-		subInfoAndHistoryContainer.add(tradeHistoryPanel, BorderLayout.SOUTH);
-
-		subInfoAndHistoryContainer.setVisible(statsPanel.getExpandedItems().contains(flippingItem.getItemName()));
+		boolean shouldExpand = statsPanel.getExpandedItems().contains(flippingItem.getItemName());
+		if (shouldExpand)
+		{
+			buildSubInfoAndHistory();
+		}
+		subInfoAndHistoryContainer.setVisible(shouldExpand);
 
 		add(titlePanel, BorderLayout.NORTH);
 		add(subInfoAndHistoryContainer, BorderLayout.CENTER);
@@ -192,11 +179,51 @@ public class StatItemPanel extends JPanel
 		repaint();
 	}
 
+	/**
+	 * Builds the sub info and trade history the first time they are shown. Most panels are never expanded, so
+	 * there's no need to build them for every panel.
+	 */
+	private void buildSubInfoAndHistory()
+	{
+		if (subInfoPanel != null)
+		{
+			return;
+		}
+
+		JLabel[] descriptionLabels = {new JLabel("Total Profit: "), new JLabel("Avg. Profit ea: "), new JLabel("Avg. ROI: "), new JLabel("Last Traded: "), new JLabel("Quantity Flipped: "),
+			new JLabel(" "), new JLabel("Quantity Bought: "), new JLabel("Quantity Sold: "), new JLabel("Avg. Buy Price: "), new JLabel("Avg. Sell Price: ")};
+
+		JLabel[] valueLabels = {totalProfitValLabel, profitEachValLabel, roiValLabel, timeOfLastFlipValLabel, quantityFlipped,
+			new JLabel(" "), quantityBoughtLabel, quantitySoldLabel, avgBuyPriceValLabel,
+			avgSellPriceValLabel};
+
+		subInfoPanel = subInfoPanel(descriptionLabels, valueLabels);
+		JPanel tradeHistoryPanel = tradeHistoryPanel(allOffersPanel, allFlipsPanel);
+
+		subInfoAndHistoryContainer.add(subInfoPanel, BorderLayout.CENTER);
+		subInfoAndHistoryContainer.add(tradeHistoryPanel, BorderLayout.SOUTH);
+	}
+
+	/**
+	 * Gets the item's offers and flips and builds the panels for them the first time the trade history is shown.
+	 */
+	private void loadTradeHistory()
+	{
+		if (breakdown != null)
+		{
+			return;
+		}
+
+		breakdown = statsPanel.getBreakdown(flippingItem);
+		offerPaginator.updateTotalPages(breakdown.getOffers().size());
+		flipPaginator.updateTotalPages(breakdown.getFlips().size());
+		buildAllFlipsPanel();
+		buildAllOffersPanels();
+	}
+
 	public void buildAllOffersPanels() {
 		SwingUtilities.invokeLater(() -> {
-			List<OfferEvent> reversedHistory = new ArrayList<>(tradeHistory);
-			Collections.reverse(reversedHistory);
-			List<OfferEvent> offersOnCurrentPage = offerPaginator.getCurrentPageItems(reversedHistory);
+			List<OfferEvent> offersOnCurrentPage = offerPaginator.getCurrentPageItems(breakdown.getOffers());
 			offerPanels = offersOnCurrentPage.stream().map(offerEvent -> new OfferPanel(offerEvent, flippingItem, plugin)).collect(Collectors.toList());
 			List<JPanel> panels = new ArrayList<>();
 			panels.add(offerPaginator);
@@ -210,7 +237,7 @@ public class StatItemPanel extends JPanel
 
 	private void buildAllFlipsPanel() {
 		SwingUtilities.invokeLater(() -> {
-			List<Flip> flipsOnCurrentPage = flipPaginator.getCurrentPageItems(flips);
+			List<Flip> flipsOnCurrentPage = flipPaginator.getCurrentPageItems(breakdown.getFlips());
 			flipPanels = flipsOnCurrentPage.stream().map(FlipPanel::new).collect(Collectors.toList());
 			List<JPanel> panels = new ArrayList<>();
 			panels.add(flipPaginator);
@@ -248,6 +275,7 @@ public class StatItemPanel extends JPanel
 					}
 					else
 					{
+						buildSubInfoAndHistory();
 						collapseIconTitleLabel.setIcon(Icons.OPEN_ICON);
 						subInfoAndHistoryContainer.setVisible(true);
 						statsPanel.getExpandedItems().add(flippingItem.getItemName());
@@ -339,6 +367,10 @@ public class StatItemPanel extends JPanel
 		tabGroup.addTab(flipsTab);
 
 		tabGroup.select(shouldSelectOffersTab? offersTab: flipsTab);
+		if (shouldExpandTradeHistory)
+		{
+			loadTradeHistory();
+		}
 		mainDisplay.setVisible(shouldExpandTradeHistory);
 		tabGroup.setVisible(shouldExpandTradeHistory);
 
@@ -362,6 +394,7 @@ public class StatItemPanel extends JPanel
 					}
 					else
 					{
+						loadTradeHistory();
 						tabGroup.setVisible(true);
 						mainDisplay.setVisible(true);
 						collapseTradeHistoryIconLabel.setIcon(Icons.OPEN_ICON);
@@ -473,28 +506,13 @@ public class StatItemPanel extends JPanel
 
 	public void updateLabels()
 	{
-		long numItemsBought = 0;
-		long numItemsSold = 0;
-		for (OfferEvent offer : tradeHistory)
-		{
-			if (offer.isBuy())
-			{
-				numItemsBought += offer.getCurrentQuantityInTrade();
-			}
-			else
-			{
-				numItemsSold += offer.getCurrentQuantityInTrade();
-			}
-		}
-		long revenueFromFlippedItems = flippingItem.getFlippedCashFlow(tradeHistory, false);
-		long expenseFromFlippedItems = flippingItem.getFlippedCashFlow(tradeHistory, true);
-		long totalRevenue = flippingItem.getTotalCashFlow(tradeHistory, false);
-		long totalExpense = flippingItem.getTotalCashFlow(tradeHistory, true);
-		int itemCountFlipped = flippingItem.countItemsFlipped(tradeHistory);
-
-		updateTitleLabels(revenueFromFlippedItems - expenseFromFlippedItems, itemCountFlipped);
-		updateFlippingLabels(expenseFromFlippedItems, revenueFromFlippedItems, itemCountFlipped);
-		updateGeneralLabels(totalRevenue, totalExpense, numItemsBought, numItemsSold);
+		IntervalStats stats = flippingItem.getIntervalStats(startOfInterval);
+		int itemCountFlipped = (int) stats.getItemsFlipped();
+		lastTradeTime = stats.getLastTradeTime();
+
+		updateTitleLabels(stats.getProfit(), itemCountFlipped);
+		updateFlippingLabels(stats.getFlippedExpense(), stats.getFlippedRevenue(), itemCountFlipped);
+		updateGeneralLabels(stats.getTotalRevenue(), stats.getTotalExpense(), stats.getItemsBought(), stats.getItemsSold());
 		updateTimeLabels();
 	}
 
@@ -544,15 +562,17 @@ public class StatItemPanel extends JPanel
 
 	public void updateTimeLabels()
 	{
-		if (tradeHistory.isEmpty())
+		if (lastTradeTime == null)
 		{
 			return;
 		}
 
-		OfferEvent lastRecordedTrade = tradeHistory.get(tradeHistory.size() - 1);
-		timeOfLastFlipValLabel.setText(TimeFormatters.formatDurationTruncated(lastRecordedTrade.getTime()) + " ago");
-		if (flipPanels != null && offerPanels != null) {
+		timeOfLastFlipValLabel.setText(TimeFormatters.formatDurationTruncated(lastTradeTime) + " ago");
+		//the trade history is only shown once it's opened, and only one of its tabs at a time
+		if (flipPanels != null && allFlipsPanel.isShowing()) {
 			flipPanels.forEach(FlipPanel::updateTitle);
+		}
+		if (offerPanels != null && allOffersPanel.isShowing()) {
 			offerPanels.forEach(OfferPanel::updateTimeDisplay);
 		}
 	}
@@ -28,7 +28,7 @@ package com.flippingutilities.ui.statistics;
 
 import com.flippingutilities.controller.FlippingPlugin;
 import com.flippingutilities.model.FlippingItem;
-import com.flippingutilities.model.OfferEvent;
+import com.flippingutilities.model.IntervalStats;
 import com.flippingutilities.ui.uiutilities.*;
 import com.google.common.base.Strings;
 import lombok.Getter;
@@ -43,6 +43,7 @@ import net.runelite.client.ui.components.IconTextField;
 import net.runelite.client.util.QuantityFormatter;
 
 import javax.swing.*;
+import javax.swing.Timer;
 import javax.swing.border.Border;
 import javax.swing.border.CompoundBorder;
 import javax.swing.border.EmptyBorder;
@@ -59,7 +60,9 @@ import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.*;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 public class StatsPanel extends JPanel
@@ -67,6 +70,10 @@ public class StatsPanel extends JPanel
 	private static final String[] TIME_INTERVAL_STRINGS = {"-1h (Past Hour)", "-4h (Past 4 Hours)", "-12h (Past 12 Hours)", "-1d (Past Day)", "-1w (Past Week)", "-1m (Past Month)", "Session", "All"};
 	private static final String[] SORT_BY_STRINGS = {"Most Recent", "Most Total Profit", "Most Profit Each", "Highest ROI", "Highest Quantity"};
 	private static final Dimension ICON_SIZE = new Dimension(16, 16);
+	//how many items there have to be before the summary's stats are worked out in parallel
+	private static final int PARALLEL_STATS_THRESHOLD = 1000;
+	//how long a rebuild can take before the loading label is shown, so it doesn't flash up for quick ones
+	private static final int LOADING_LABEL_DELAY_MS = 200;
 
 
 	private static final Border TOTAL_PROFIT_CONTAINER_BORDER = new CompoundBorder(
@@ -155,6 +162,16 @@ public class StatsPanel extends JPanel
 
 	private Paginator paginator;
 
+	//goes up with every rebuild, so a rebuild that has been superseded by a later one is dropped
+	private final AtomicInteger rebuildGeneration = new AtomicInteger();
+
+	//shown while a rebuild is being worked out
+	private final JLabel loadingLabel = new JLabel("Loading...", SwingConstants.CENTER);
+	private final Timer loadingLabelTimer = new Timer(LOADING_LABEL_DELAY_MS, e -> loadingLabel.setVisible(true));
+
+	//the trade history breakdowns of the items on the current page that have been opened, by item id
+	private final Map<Integer, ItemBreakdown> breakdownsByItemId = new HashMap<>();
+
 	JLabel downloadIcon;
 
 	private final IconTextField searchBar;
@@ -227,8 +244,8 @@ public class StatsPanel extends JPanel
 					//If the user pressed "Yes"
 					if (result == JOptionPane.YES_OPTION)
 					{
+						//the panels are rebuilt once the offers have been invalidated
 						plugin.invalidateOffers(startOfInterval);
-						rebuild(plugin.viewTradesForCurrentView());
 					}
 				}
 			}
@@ -480,18 +497,19 @@ public class StatsPanel extends JPanel
 		scrollWrapper.getVerticalScrollBar().setPreferredSize(new Dimension(6, 0));
 		scrollWrapper.getVerticalScrollBar().setBorder(new EmptyBorder(0, 3, 0, 0));
 
+		loadingLabel.setFont(FontManager.getRunescapeSmallFont());
+		loadingLabel.setForeground(ColorScheme.LIGHT_GRAY_COLOR);
+		loadingLabel.setBorder(new EmptyBorder(3, 0, 0, 0));
+		loadingLabel.setVisible(false);
+		loadingLabelTimer.setRepeats(false);
+
 		//itemContainer holds the StatItems along with its sorting selector.
 		JPanel itemContainer = new JPanel(new BorderLayout());
 		itemContainer.add(sortPanel, BorderLayout.NORTH);
 		itemContainer.add(scrollWrapper, BorderLayout.CENTER);
+		itemContainer.add(loadingLabel, BorderLayout.SOUTH);
 
-		paginator = new Paginator(() -> SwingUtilities.invokeLater(() -> {
-			Instant rebuildStart = Instant.now();
-			rebuildStatItemContainer(plugin.viewTradesForCurrentView());
-			revalidate();
-			repaint();
-			log.info("page change took {}", Duration.between(rebuildStart, Instant.now()).toMillis());
-		}));
+		paginator = new Paginator(() -> rebuild(plugin.viewTradesForCurrentView()));
 		paginator.setBackground(ColorScheme.DARKER_GRAY_COLOR.darker());
 		paginator.setBorder(new EmptyBorder(0, 0, 0, 10));
 
@@ -508,38 +526,127 @@ public class StatsPanel extends JPanel
 	/**
 	 * Removes old stat items and builds new ones based on the passed trade list.
 	 * Items are initialized with their sub info containers collapsed.
+	 * <p>
+	 * The stats are worked out on the offer worker, after the offers already queued have been applied, so they
+	 * aren't worked out on the EDT and the trades lists aren't changed while they're being read. Only the panels are
+	 * made on the EDT. A rebuild is dropped if another one is started before it's done, so changing the interval or
+	 * sort several times quickly only shows the last one.
+	 * <p>
+	 * This is called from the EDT, the client thread and the offer worker, so the interval, sort and page number,
+	 * which are changed on the EDT, are read on the EDT before the rebuild is handed to the worker.
 	 *
 	 * @param flippingItems The list of flipping items that get shown on the stat panel.
 	 */
 	public void rebuild(List<FlippingItem> flippingItems)
 	{
-		//Remove old stats
-		activePanels = new ArrayList<>();
-
+		int generation = rebuildGeneration.incrementAndGet();
 		SwingUtilities.invokeLater(() ->
 		{
-			Instant rebuildStart = Instant.now();
-			rebuildStatItemContainer(flippingItems);
-			updateDisplays(flippingItems);
-			revalidate();
-			repaint();
-			//log.info("stats panel rebuild took {}", Duration.between(rebuildStart, Instant.now()).toMillis());
+			if (generation != rebuildGeneration.get())
+			{
+				return;
+			}
+			Instant intervalStart = startOfInterval;
+			String sort = selectedSort;
+			int pageNumber = paginator.getPageNumber();
+			loadingLabelTimer.restart();
+
+			plugin.getNewOfferEventPipelineHandler().runAfterQueuedOffers(() ->
+			{
+				if (generation != rebuildGeneration.get())
+				{
+					return;
+				}
+
+				Instant rebuildStart = Instant.now();
+				RebuildResult result = computeRebuild(flippingItems, intervalStart, sort, pageNumber);
+				//log.info("stats panel rebuild took {}", Duration.between(rebuildStart, Instant.now()).toMillis());
+
+				SwingUtilities.invokeLater(() ->
+				{
+					if (generation != rebuildGeneration.get())
+					{
+						return;
+					}
+					loadingLabelTimer.stop();
+					loadingLabel.setVisible(false);
+					rebuildStatItemContainer(result);
+					updateDisplays(result);
+					revalidate();
+					repaint();
+				});
+			});
 		});
 	}
 
-	public void rebuildStatItemContainer(List<FlippingItem> flippingItems)
+	/**
+	 * Works out which items go on the current page and the totals shown in the summary. Doesn't touch any
+	 * components, so it can be run off the EDT.
+	 */
+	private RebuildResult computeRebuild(List<FlippingItem> flippingItems, Instant intervalStart, String sort, int pageNumber)
+	{
+		RebuildResult result = new RebuildResult();
+		//the stats of each item are independent of each other, so a long list is split across the common fork join pool
+		Stream<FlippingItem> items = flippingItems.size() >= PARALLEL_STATS_THRESHOLD ? flippingItems.parallelStream() : flippingItems.stream();
+		List<IntervalStats> itemStats = items.map(item -> item.getIntervalStats(intervalStart)).collect(Collectors.toList());
+
+		//an item only has a panel if it was traded in the interval, which its stats already say without copying its offers
+		List<FlippingItem> itemsThatShouldHavePanels = new ArrayList<>();
+		List<IntervalStats> statsOfItemsWithPanels = new ArrayList<>();
+		for (int i = 0; i < flippingItems.size(); i++)
+		{
+			IntervalStats stats = itemStats.get(i);
+			if (stats.getLastTradeTime() == null)
+			{
+				continue;
+			}
+			itemsThatShouldHavePanels.add(flippingItems.get(i));
+			statsOfItemsWithPanels.add(stats);
+			result.totalProfit += stats.getProfit();
+			result.totalExpenses += stats.getFlippedExpense();
+			int flips = stats.getFlipCount();
+			result.totalFlips += flips;
+			if (result.mostCommonItemName == null || result.mostFlips < flips)
+			{
+				result.mostFlips = flips;
+				result.mostCommonItemName = flippingItems.get(i).getItemName();
+			}
+		}
+
+		result.itemCount = itemsThatShouldHavePanels.size();
+		result.itemsOnCurrentPage = paginator.getPageItems(itemsThatShouldHavePanels, sortOrder(itemsThatShouldHavePanels, statsOfItemsWithPanels, sort), pageNumber);
+		return result;
+	}
+
+	private void rebuildStatItemContainer(RebuildResult result)
 	{
 		activePanels.clear();
 		statItemContainer.removeAll();
-		List<FlippingItem> sortedItems = sortTradeList(flippingItems);
-		List<FlippingItem> itemsThatShouldHavePanels = sortedItems.stream().filter(item -> item.getIntervalHistory(startOfInterval).stream().anyMatch(OfferEvent::isValidOfferEvent)).collect(Collectors.toList());
-		paginator.updateTotalPages(itemsThatShouldHavePanels.size());
-		List<FlippingItem> itemsOnCurrentPage = paginator.getCurrentPageItems(itemsThatShouldHavePanels);
-		List<StatItemPanel> newPanels = itemsOnCurrentPage.stream().map(item -> new StatItemPanel(plugin, itemManager, item)).collect(Collectors.toList());
+		paginator.updateTotalPages(result.itemCount);
+		Set<Integer> itemIdsOnCurrentPage = result.itemsOnCurrentPage.stream().map(FlippingItem::getItemId).collect(Collectors.toSet());
+		breakdownsByItemId.keySet().retainAll(itemIdsOnCurrentPage);
+		List<StatItemPanel> newPanels = result.itemsOnCurrentPage.stream().map(item -> new StatItemPanel(plugin, itemManager, item)).collect(Collectors.toList());
 		UIUtilities.stackPanelsVertically((List) newPanels, statItemContainer, 5);
 		activePanels.addAll(newPanels);
 	}
 
+	/**
+	 * Gets the offers and flips of an item in the current time interval, working them out only if they haven't
+	 * been since the interval or the item's offers last changed.
+	 *
+	 * @param item the item to get the breakdown of
+	 */
+	ItemBreakdown getBreakdown(FlippingItem item)
+	{
+		ItemBreakdown breakdown = breakdownsByItemId.get(item.getItemId());
+		if (breakdown == null || !breakdown.isUpToDate(item, startOfInterval))
+		{
+			breakdown = new ItemBreakdown(item, startOfInterval);
+			breakdownsByItemId.put(item.getItemId(), breakdown);
+		}
+		return breakdown;
+	}
+
 	private void updateSearch()
 	{
 		String lookup = searchBar.getText().toLowerCase();
@@ -577,9 +684,9 @@ public class StatsPanel extends JPanel
 	/**
 	 * Updates the display of the total profit value along with the display of sub panels
 	 *
-	 * @param tradesList
+	 * @param result the totals worked out by the rebuild
 	 */
-	public void updateDisplays(List<FlippingItem> tradesList)
+	private void updateDisplays(RebuildResult result)
 	{
 		subInfoContainer.removeAll();
 
@@ -599,29 +706,11 @@ public class StatsPanel extends JPanel
 			subInfoContainer.remove(hourlyProfitPanel);
 		}
 
-		totalProfit = 0;
-		totalExpenses = 0;
-		totalFlips = 0;
-		mostCommonItemName = null;
-		mostFlips = 0;
-
-		for (FlippingItem item : tradesList)
-		{
-			List<OfferEvent> intervalHistory = item.getIntervalHistory(startOfInterval);
-			if (intervalHistory.isEmpty())
-			{
-				continue;
-			}
-			totalProfit += item.currentProfit(intervalHistory);
-			totalExpenses += item.getFlippedCashFlow(startOfInterval, true);
-			int flips = item.getFlips(startOfInterval).size();
-			totalFlips += flips;
-			if (mostCommonItemName == null || mostFlips < flips)
-			{
-				mostFlips = flips;
-				mostCommonItemName = item.getItemName();
-			}
-		}
+		totalProfit = result.totalProfit;
+		totalExpenses = result.totalExpenses;
+		totalFlips = result.totalFlips;
+		mostCommonItemName = result.mostCommonItemName;
+		mostFlips = result.mostFlips;
 
 		updateTotalProfitDisplay();
 		updateSubInfoFont();
@@ -744,16 +833,22 @@ public class StatsPanel extends JPanel
 	}
 
 	/**
-	 * This is called every second by the executor service in FlippingPlugin
+	 * This is called on the EDT every second by the UiTickScheduler, and only updates the panels on screen.
 	 */
 	public void updateTimeDisplay()
 	{
-		activePanels.forEach(StatItemPanel::updateTimeLabels);
+		for (StatItemPanel panel : activePanels)
+		{
+			if (panel.isShowing())
+			{
+				panel.updateTimeLabels();
+			}
+		}
 	}
 
 	/**
 	 * This is called by updateSessionTime in FlippingPlugin, which itself is called every second by
-	 * the executor service.
+	 * the UiTickScheduler.
 	 *
 	 * @param accumulatedTime The total time the user has spent flipping since the client started up.
 	 */
@@ -848,111 +943,63 @@ public class StatsPanel extends JPanel
 	}
 
 	/**
-	 * Clones and sorts the to-be-built tradeList items according to the selectedSort string.
+	 * Gets the order the selected sort puts items in, as a comparison of their indexes in the list. The key each item
+	 * is sorted by is worked out once up front, rather than every time two items are compared.
 	 *
-	 * @param tradeList The soon-to-be drawn tradeList whose items are getting sorted.
-	 * @return Returns a cloned and sorted tradeList as specified by the selectedSort string.
+	 * @param items     the items to sort
+	 * @param itemStats the stats of each item in the interval, in the same order as the items
+	 * @param sort      the selected sort
+	 * @return the order of the items' indexes, or null if no sort is selected
 	 */
-	public List<FlippingItem> sortTradeList(List<FlippingItem> tradeList)
+	private Comparator<Integer> sortOrder(List<FlippingItem> items, List<IntervalStats> itemStats, String sort)
 	{
-		List<FlippingItem> result = new ArrayList<>(tradeList);
-
-		if (selectedSort == null || result.isEmpty())
+		if (sort == null || items.isEmpty())
 		{
-			return result;
+			return null;
 		}
 
-		switch (selectedSort)
+		Comparator<Integer> order;
+		if (sort.equals("Most Recent"))
 		{
-			case "Most Recent":
-				result.sort(Comparator.comparing(FlippingItem::getLatestActivityTime));
-				break;
-
-			case "Most Total Profit":
-				result.sort((item1, item2) -> {
-					ArrayList<OfferEvent> intervalHistory1 = item1.getIntervalHistory(startOfInterval);
-					ArrayList<OfferEvent> intervalHistory2 = item2.getIntervalHistory(startOfInterval);
-
-					long totalExpense1 = item1.getFlippedCashFlow(intervalHistory1, true);
-					long totalRevenue1 = item1.getFlippedCashFlow(intervalHistory1, false);
-
-					long totalExpense2 = item2.getFlippedCashFlow(intervalHistory2, true);
-					long totalRevenue2 = item2.getFlippedCashFlow(intervalHistory2, false);
-
-					if ((totalExpense1 != 0 && totalRevenue1 != 0) && (totalExpense2 == 0 || totalRevenue2 == 0))
-					{
-						return 1;
-					}
-
-					if ((totalExpense1 == 0 || totalRevenue1 == 0) && (totalExpense2 != 0 && totalRevenue2 != 0))
-					{
-						return -1;
-					}
+			order = Comparator.comparing(i -> items.get(i).getLatestActivityTime());
+		}
+		else
+		{
+			double[] keys = new double[items.size()];
+			for (int i = 0; i < keys.length; i++)
+			{
+				keys[i] = sortKey(itemStats.get(i), sort);
+			}
+			order = (i, j) -> Double.compare(keys[i], keys[j]);
+		}
 
-					if ((totalExpense1 == 0 || totalRevenue1 == 0) && (totalExpense2 == 0 || totalRevenue2 == 0))
-					{
-						return 0;
-					}
+		//highest first, with items that have the same key the other way round to the order they came in
+		return order.reversed().thenComparing(Comparator.reverseOrder());
+	}
 
-					return Long.compare(item1.currentProfit(intervalHistory1), item2.currentProfit(intervalHistory2));
-				});
-				break;
+	/**
+	 * Works out what an item is sorted by for the selected sort. Items that haven't been both bought and sold
+	 * in the interval go below all the ones that have when sorting by profit or ROI.
+	 */
+	private double sortKey(IntervalStats stats, String sort)
+	{
+		switch (sort)
+		{
+			case "Most Total Profit":
+				return stats.hasBeenBoughtAndSold() ? stats.getProfit() : Double.NEGATIVE_INFINITY;
 
 			case "Most Profit Each":
-				result.sort(Comparator.comparing(item ->
-				{
-					ArrayList<OfferEvent> intervalHistory = item.getIntervalHistory(startOfInterval);
-					int quantity = item.countItemsFlipped(intervalHistory);
+				return stats.getItemsFlipped() == 0 ? 0 : (int) stats.getProfit() / (int) stats.getItemsFlipped();
 
-					if (quantity == 0)
-					{
-						return 0;
-					}
-
-					return (int) item.currentProfit(intervalHistory) / quantity;
-				}));
-				break;
 			case "Highest ROI":
-				result.sort((item1, item2) ->
-				{
-					ArrayList<OfferEvent> intervalHistory1 = item1.getIntervalHistory(startOfInterval);
-					ArrayList<OfferEvent> intervalHistory2 = item2.getIntervalHistory(startOfInterval);
-
-					long totalExpense1 = item1.getFlippedCashFlow(intervalHistory1, true);
-					long totalRevenue1 = item1.getFlippedCashFlow(intervalHistory1, false);
-
-					long totalExpense2 = item2.getFlippedCashFlow(intervalHistory2, true);
-					long totalRevenue2 = item2.getFlippedCashFlow(intervalHistory2, false);
-
-					if ((totalExpense1 != 0 && totalRevenue1 != 0) && (totalExpense2 == 0 || totalRevenue2 == 0))
-					{
-						return 1;
-					}
-
-					if ((totalExpense1 == 0 || totalRevenue1 == 0) && (totalExpense2 != 0 && totalRevenue2 != 0))
-					{
-						return -1;
-					}
-
-					if ((totalExpense1 == 0 || totalRevenue1 == 0) && (totalExpense2 == 0 || totalRevenue2 == 0))
-					{
-						return 0;
-					}
-
-					return Float.compare((float) item1.currentProfit(intervalHistory1) / totalExpense1, (float) item2.currentProfit(intervalHistory2) / totalExpense2);
-				});
-				break;
+				return stats.hasBeenBoughtAndSold() ? (float) stats.getProfit() / stats.getFlippedExpense() : Double.NEGATIVE_INFINITY;
 
 			case "Highest Quantity":
-				result.sort(Comparator.comparing(item -> item.countItemsFlipped(item.getIntervalHistory(startOfInterval))));
-				break;
+				return stats.getItemsFlipped();
 
 			default:
-				throw new IllegalStateException("Unexpected value: " + selectedSort);
+				throw new IllegalStateException("Unexpected value: " + sort);
 		}
-		Collections.reverse(result);
-
-		return result;
 	}
 
 	public void setSelectedTimeInterval(String interval)
@@ -967,4 +1014,19 @@ public class StatsPanel extends JPanel
 		}
 	}
 
+
+	/**
+	 * What a rebuild works out off the EDT.
+	 */
+	private static class RebuildResult
+	{
+		private List<FlippingItem> itemsOnCurrentPage;
+		//the number of items that should have panels, across all pages
+		private int itemCount;
+		private long totalProfit;
+		private long totalExpenses;
+		private int totalFlips;
+		private String mostCommonItemName;
+		private int mostFlips;
+	}
 }
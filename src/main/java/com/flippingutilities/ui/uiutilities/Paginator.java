@@ -12,7 +12,9 @@ import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
 
 @Slf4j
 public class Paginator extends JPanel
@@ -143,4 +145,61 @@ public class Paginator extends JPanel
 		}
 		return pageItems;
 	}
+
+	/**
+	 * Gets the items that would be on the current page if the items were sorted, without sorting all of them. Only
+	 * the items up to the end of the current page are picked out, with a heap, and then sorted. Items the order
+	 * considers equal stay in the order they're in, the same as with a full sort.
+	 *
+	 * @param items      the unsorted items
+	 * @param indexOrder compares the items at two indexes of the list, so sort keys can be worked out once beforehand
+	 *                   and looked up by index. If it's null, the items are paged in the order they're in.
+	 */
+	public <T> List<T> getCurrentPageItems(List<T> items, Comparator<Integer> indexOrder)
+	{
+		return getPageItems(items, indexOrder, pageNumber);
+	}
+
+	/**
+	 * Same as {@link #getCurrentPageItems(List, Comparator)} for the given page rather than the current one, so it can
+	 * be used off the EDT with a page number read on the EDT.
+	 */
+	public <T> List<T> getPageItems(List<T> items, Comparator<Integer> indexOrder, int pageNumber)
+	{
+		int startIndex = (pageNumber - 1) * pageSize;
+		int endIndex = Math.min(startIndex + pageSize, items.size());
+		if (startIndex >= endIndex)
+		{
+			return new ArrayList<>();
+		}
+		if (indexOrder == null)
+		{
+			return new ArrayList<>(items.subList(startIndex, endIndex));
+		}
+
+		Comparator<Integer> stableOrder = indexOrder.thenComparing(Comparator.naturalOrder());
+		//the last of the first endIndex items is at the top, so it's the one pushed out when an earlier item is found
+		PriorityQueue<Integer> firstIndexes = new PriorityQueue<>(endIndex, stableOrder.reversed());
+		for (int i = 0; i < items.size(); i++)
+		{
+			if (firstIndexes.size() < endIndex)
+			{
+				firstIndexes.add(i);
+			}
+			else if (stableOrder.compare(i, firstIndexes.peek()) < 0)
+			{
+				firstIndexes.poll();
+				firstIndexes.add(i);
+			}
+		}
+
+		List<Integer> sortedIndexes = new ArrayList<>(firstIndexes);
+		sortedIndexes.sort(stableOrder);
+		List<T> pageItems = new ArrayList<>();
+		for (int i = startIndex; i < endIndex; i++)
+		{
+			pageItems.add(items.get(sortedIndexes.get(i)));
+		}
+		return pageItems;
+	}
 }
@@ -190,7 +190,12 @@ public class TradeActivityTimer
 			timeString = "   --:--:--";
 		}
 
-		slotStateWidget.setText("  <html>" + ColorUtil.wrapWithColorTag(slotStateString, stateTextColor) + spacer + ColorUtil.wrapWithColorTag(timeString, timeColor) + "</html>");
+		String text = "  <html>" + ColorUtil.wrapWithColorTag(slotStateString, stateTextColor) + spacer + ColorUtil.wrapWithColorTag(timeString, timeColor) + "</html>";
+		//the time of a completed offer stops counting, so the text often hasn't changed since the last tick
+		if (!text.equals(slotStateWidget.getText()))
+		{
+			slotStateWidget.setText(text);
+		}
 	}
 
 	/**
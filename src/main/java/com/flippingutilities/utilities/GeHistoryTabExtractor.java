@@ -1,17 +1,16 @@
 package com.flippingutilities.utilities;
 
 import com.flippingutilities.model.OfferEvent;
-import com.google.common.collect.Lists;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.GrandExchangeOfferState;
 import net.runelite.api.widgets.Widget;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 /**
  * Extracts data from the widgets in the trade history tab so that the TradeHistoryTabPanel can display them. I wanted
@@ -19,23 +18,48 @@ import java.util.stream.Collectors;
  */
 @Slf4j
 public class GeHistoryTabExtractor {
-    private static Pattern PRICE_PATTERN = Pattern.compile(">= (.*) each");
+    //a group of 6 widgets makes up an offer in the trade history tab
+    private static final int WIDGETS_PER_OFFER = 6;
 
     public static List<OfferEvent> convertWidgetsToOfferEvents(Widget[] widgets) {
-        //a group of 6 widgets makes up an offer in the trade history tab
-        List<List<Widget>> groupsOfWidgets = Lists.partition(Arrays.asList(widgets), 6);
-        return groupsOfWidgets.stream().map(w -> createOfferEventFromWidgetGroup(w)).collect(Collectors.toList());
+        int offerCount = widgets.length / WIDGETS_PER_OFFER;
+        List<OfferEvent> offers = new ArrayList<>(offerCount);
+        Instant scrapedAt = Instant.now();
+        for (int i = 0; i < offerCount; i++) {
+            //the tab lists the most recent trade first. Each offer is made a millisecond older than the one above it
+            //so they keep that order in the history and two identical trades can still be told apart.
+            offers.add(createOfferEventFromWidgetGroup(widgets, i * WIDGETS_PER_OFFER, scrapedAt.minusMillis(i)));
+        }
+        return offers;
+    }
+
+    /**
+     * Counts, for each offer, how many of the offers above it in the tab are for the same item, are the same kind
+     * (buy or sell) and have the same quantity and price. The scraped offers have no time of their own, so this is
+     * what tells identical trades apart when checking whether they were already added.
+     *
+     * @param offers the offers in the order they are in the tab, the most recent first
+     */
+    public static int[] countIdenticalOffersAbove(List<OfferEvent> offers) {
+        Map<List<Object>, Integer> offersSeen = new HashMap<>();
+        int[] identicalOffersAbove = new int[offers.size()];
+        for (int i = 0; i < offers.size(); i++) {
+            OfferEvent offer = offers.get(i);
+            List<Object> trade = Arrays.asList(offer.getItemId(), offer.isBuy(), offer.getCurrentQuantityInTrade(), offer.getPrice());
+            identicalOffersAbove[i] = offersSeen.getOrDefault(trade, 0);
+            offersSeen.put(trade, identicalOffersAbove[i] + 1);
+        }
+        return identicalOffersAbove;
     }
 
-    public static OfferEvent createOfferEventFromWidgetGroup(List<Widget> widgets) {
+    private static OfferEvent createOfferEventFromWidgetGroup(Widget[] widgets, int offset, Instant time) {
         //set slot to -1 so we can handle it appropriately in the history manager when the offer is added.
         int slot = -1;
-        GrandExchangeOfferState offerState = getState(widgets.get(2));
-        int quantity = widgets.get(4).getItemQuantity();
-        int itemId = widgets.get(4).getItemId();
-        int price = getPrice(widgets.get(5));
+        GrandExchangeOfferState offerState = getState(widgets[offset + 2]);
+        int quantity = widgets[offset + 4].getItemQuantity();
+        int itemId = widgets[offset + 4].getItemId();
+        int price = getPrice(widgets[offset + 5]);
         boolean isBuy = offerState == GrandExchangeOfferState.BOUGHT;
-        Instant time = Instant.now();
         int totalQuantity = quantity;
         int tickArrivedAt = -1;
         //just making ticksSinceFirst offer something > 2 so it doesn't count as a margin check
@@ -45,21 +69,27 @@ public class GeHistoryTabExtractor {
         return offerEvent;
     }
 
+    /**
+     * The text is either just the price, or the total followed by the price each as in "...>= 1,234 each", in which
+     * case only the digits between the ">= " and the " each" are read.
+     */
     private static int getPrice(Widget w) {
         String text = w.getText();
-        String numString = text;
-        if (text.contains("each")) {
-            Matcher m = PRICE_PATTERN.matcher(text);
-            m.find();
-            numString = m.group(1);
+        int start = 0;
+        int end = text.length();
+        int eachIdx = text.lastIndexOf(" each");
+        if (eachIdx != -1) {
+            start = text.indexOf(">= ") + 3;
+            end = eachIdx;
         }
-        StringBuilder s = new StringBuilder();
-        for (char c : numString.toCharArray()) {
-            if (Character.isDigit(c)) {
-                s.append(c);
+        int price = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                price = price * 10 + (c - '0');
             }
         }
-        return Integer.parseInt(s.toString());
+        return price;
     }
 
     private static GrandExchangeOfferState getState(Widget w) {
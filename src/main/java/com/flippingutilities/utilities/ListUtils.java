@@ -33,4 +33,32 @@ public class ListUtils {
         }
         return subLists;
     }
+
+    /**
+     * Finds the first item that matches a condition with a binary search. The items have to be ordered so that every
+     * item that doesn't match comes before every item that does, such as items in time order and a condition that
+     * checks whether an item is after a certain time.
+     *
+     * @param items     items ordered so that the ones that match come last
+     * @param condition the condition to find the first match of
+     * @return the index of the first item that matches, or the size of the list if none do
+     */
+    public static <T> int indexOfFirstMatch(List<T> items, Predicate<T> condition)
+    {
+        int low = 0;
+        int high = items.size();
+        while (low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if (condition.test(items.get(mid)))
+            {
+                high = mid;
+            }
+            else
+            {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
 }
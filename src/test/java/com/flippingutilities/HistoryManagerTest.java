@@ -29,6 +29,8 @@ package com.flippingutilities;
 
 import com.flippingutilities.model.Flip;
 import com.flippingutilities.model.HistoryManager;
+import com.flippingutilities.model.IntervalStats;
+import com.flippingutilities.model.MergedHistory;
 import com.flippingutilities.model.OfferEvent;
 import net.runelite.api.GrandExchangeOfferState;
 import org.junit.Before;
@@ -37,10 +39,15 @@ import org.junit.Test;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 public class HistoryManagerTest
 {
@@ -389,4 +396,323 @@ public class HistoryManagerTest
 
 		assertEquals(historyManager.getCompressedOfferEvents(), expectedCompressedEvents);
 	}
+
+	@Test
+	public void intervalHistoryIsTimeOrderedTest()
+	{
+		HistoryManager historyManager = new HistoryManager();
+
+		//offers added from the ge history tab have no slot and can be older than offers already in the history
+		OfferEvent first = Utils.offer(true, 5, 100, baseTime.minus(30, ChronoUnit.MINUTES), 1, GrandExchangeOfferState.BOUGHT, 5);
+		OfferEvent third = Utils.offer(false, 5, 110, baseTime.minus(10, ChronoUnit.MINUTES), 2, GrandExchangeOfferState.SOLD, 5);
+		OfferEvent second = Utils.offer(true, 2, 100, baseTime.minus(20, ChronoUnit.MINUTES), -1, GrandExchangeOfferState.BOUGHT, 2);
+		historyManager.updateHistory(first);
+		historyManager.updateHistory(third);
+		historyManager.updateHistory(second);
+
+		assertEquals(Arrays.asList(first, second, third), historyManager.getCompressedOfferEvents());
+		assertEquals(Arrays.asList(second, third), historyManager.getIntervalsHistory(baseTime.minus(30, ChronoUnit.MINUTES)));
+		assertEquals(Collections.emptyList(), historyManager.getIntervalsHistory(baseTime));
+
+		//an interval history isn't changed by later changes to the history
+		List<OfferEvent> intervalHistory = historyManager.getIntervalsHistory(baseTime.minus(1, ChronoUnit.HOURS));
+		historyManager.invalidateOffers(Collections.singletonList(second));
+		assertEquals(Arrays.asList(first, second, third), intervalHistory);
+		assertEquals(Arrays.asList(first, third), historyManager.getIntervalsHistory(baseTime.minus(1, ChronoUnit.HOURS)));
+	}
+
+	@Test
+	public void intervalStatsMatchTradeListStatsTest()
+	{
+		//different prices so that the value of a partly counted offer depends on which offer it is
+		historyManager.updateHistory(Utils.offer(true, 8, 97, baseTime.minus(3, ChronoUnit.MINUTES), -1, GrandExchangeOfferState.BOUGHT, 8));
+		historyManager.updateHistory(Utils.offer(false, 4, 112, baseTime.minus(2, ChronoUnit.MINUTES), -1, GrandExchangeOfferState.SOLD, 4));
+		historyManager.updateHistory(Utils.offer(true, 11, 93, baseTime.minus(1, ChronoUnit.MINUTES), -1, GrandExchangeOfferState.BOUGHT, 11));
+
+		for (int minutesBefore = 60; minutesBefore >= 0; minutesBefore--)
+		{
+			Instant earliestTime = baseTime.minus(minutesBefore, ChronoUnit.MINUTES);
+			List<OfferEvent> tradesList = historyManager.getIntervalsHistory(earliestTime);
+
+			assertEquals(HistoryManager.currentProfit(tradesList), historyManager.currentProfit(earliestTime));
+			assertEquals(HistoryManager.getFlippedCashFlow(tradesList, true), historyManager.getFlippedCashFlow(earliestTime, true));
+			assertEquals(HistoryManager.getFlippedCashFlow(tradesList, false), historyManager.getFlippedCashFlow(earliestTime, false));
+			assertEquals(HistoryManager.getTotalCashFlow(tradesList, true), historyManager.getTotalCashFlow(earliestTime, true));
+			assertEquals(HistoryManager.getTotalCashFlow(tradesList, false), historyManager.getTotalCashFlow(earliestTime, false));
+			assertEquals(HistoryManager.countItemsFlipped(tradesList), historyManager.countItemsFlipped(earliestTime));
+		}
+
+		//47 + 8 + 11 bought, 40 + 4 sold, so the 44 items flipped are the first 44 bought
+		assertEquals(44 * 100, historyManager.getFlippedCashFlow(baseTime.minus(1, ChronoUnit.HOURS), true));
+		//from 3 minutes before, 8 + 11 bought and 4 sold, so only 4 of the first buy count
+		assertEquals(4 * 112 - 4 * 97, historyManager.currentProfit(baseTime.minus(3, ChronoUnit.MINUTES).minusSeconds(1)));
+		assertEquals(19, historyManager.countItemsTraded(baseTime.minus(3, ChronoUnit.MINUTES).minusSeconds(1), true));
+	}
+
+	@Test
+	public void runningTotalsFollowAddedAndRemovedOffersTest()
+	{
+		HistoryManager historyManager = new HistoryManager();
+		Instant earliestTime = baseTime.minus(1, ChronoUnit.HOURS);
+		historyManager.updateHistory(Utils.offer(true, 10, 100, baseTime.minus(10, ChronoUnit.MINUTES), 1, GrandExchangeOfferState.BOUGHT, 10));
+		//works out the running totals, so the offers after this change them rather than them being worked out again
+		assertEquals(10, historyManager.countItemsTraded(earliestTime, true));
+
+		//a sell that fills bit by bit, each offer replacing the one before it
+		historyManager.updateHistory(Utils.offer(false, 2, 120, baseTime.minus(5, ChronoUnit.MINUTES), 2, GrandExchangeOfferState.SELLING, 10));
+		historyManager.updateHistory(Utils.offer(false, 6, 120, baseTime.minus(4, ChronoUnit.MINUTES), 2, GrandExchangeOfferState.SELLING, 10));
+		assertRunningTotalsMatchTradeList(historyManager, earliestTime);
+
+		//an offer from the ge history tab that is older than the others
+		historyManager.updateHistory(Utils.offer(true, 3, 90, baseTime.minus(20, ChronoUnit.MINUTES), -1, GrandExchangeOfferState.BOUGHT, 3));
+		historyManager.updateHistory(Utils.offer(false, 10, 120, baseTime.minus(3, ChronoUnit.MINUTES), 2, GrandExchangeOfferState.SOLD, 10));
+		assertRunningTotalsMatchTradeList(historyManager, earliestTime);
+		assertEquals(13, historyManager.countItemsTraded(earliestTime, true));
+		assertEquals(10, historyManager.countItemsTraded(earliestTime, false));
+		assertEquals(3, historyManager.getIntervalsHistory(earliestTime).size());
+	}
+
+	private void assertRunningTotalsMatchTradeList(HistoryManager historyManager, Instant earliestTime)
+	{
+		List<OfferEvent> tradesList = historyManager.getIntervalsHistory(earliestTime);
+		assertEquals(HistoryManager.currentProfit(tradesList), historyManager.currentProfit(earliestTime));
+		assertEquals(HistoryManager.getTotalCashFlow(tradesList, true), historyManager.getTotalCashFlow(earliestTime, true));
+		assertEquals(HistoryManager.getTotalCashFlow(tradesList, false), historyManager.getTotalCashFlow(earliestTime, false));
+		assertEquals(HistoryManager.countItemsFlipped(tradesList), historyManager.countItemsFlipped(earliestTime));
+	}
+
+	@Test
+	public void intervalStatsMatchSeparateStatsTest()
+	{
+		historyManager.updateHistory(Utils.offer(true, 8, 97, baseTime.minus(3, ChronoUnit.MINUTES), -1, GrandExchangeOfferState.BOUGHT, 8));
+		historyManager.updateHistory(Utils.offer(false, 4, 112, baseTime.minus(2, ChronoUnit.MINUTES), -1, GrandExchangeOfferState.SOLD, 4));
+
+		for (int minutesBefore = 60; minutesBefore >= 0; minutesBefore--)
+		{
+			Instant earliestTime = baseTime.minus(minutesBefore, ChronoUnit.MINUTES);
+			IntervalStats stats = historyManager.getIntervalStats(earliestTime);
+			List<OfferEvent> tradesList = historyManager.getIntervalsHistory(earliestTime);
+
+			assertEquals(historyManager.currentProfit(earliestTime), stats.getProfit());
+			assertEquals(historyManager.getFlippedCashFlow(earliestTime, true), stats.getFlippedExpense());
+			assertEquals(historyManager.getTotalCashFlow(earliestTime, false), stats.getTotalRevenue());
+			assertEquals(historyManager.countItemsTraded(earliestTime, true), stats.getItemsBought());
+			assertEquals(historyManager.countItemsTraded(earliestTime, false), stats.getItemsSold());
+			assertEquals(historyManager.countItemsFlipped(earliestTime), stats.getItemsFlipped());
+			assertEquals(historyManager.getFlips(earliestTime).size(), stats.getFlipCount());
+			assertEquals(tradesList.isEmpty() ? null : tradesList.get(tradesList.size() - 1).getTime(), stats.getLastTradeTime());
+		}
+	}
+
+	@Test
+	public void latestOffersMatchLatestMatchingOffersTest()
+	{
+		HistoryManager historyManager = new HistoryManager();
+		assertEquals(null, historyManager.getLatestOffers().getBuy());
+
+		historyManager.updateHistory(Utils.offer(true, 1, 100, baseTime.minus(5, ChronoUnit.MINUTES), 1, GrandExchangeOfferState.BOUGHT, 1, 1, 1));
+		historyManager.updateHistory(Utils.offer(false, 1, 90, baseTime.minus(4, ChronoUnit.MINUTES), 2, GrandExchangeOfferState.SOLD, 1, 1, 1));
+		historyManager.updateHistory(Utils.offer(true, 5, 95, baseTime.minus(3, ChronoUnit.MINUTES), 3, GrandExchangeOfferState.BOUGHT, 5));
+		historyManager.updateHistory(Utils.offer(true, 2, 96, baseTime.minus(2, ChronoUnit.MINUTES), 4, GrandExchangeOfferState.BUYING, 5));
+
+		HistoryManager.LatestOffers latestOffers = historyManager.getLatestOffers();
+		assertEquals(historyManager.getLatestOfferThatMatchesPredicate(OfferEvent::isBuy).get(), latestOffers.getBuy());
+		assertEquals(historyManager.getLatestOfferThatMatchesPredicate(offer -> !offer.isBuy()).get(), latestOffers.getSell());
+		assertEquals(historyManager.getLatestOfferThatMatchesPredicate(offer -> offer.isBuy() && offer.isMarginCheck()).get(), latestOffers.getInstaBuy());
+		assertEquals(historyManager.getLatestOfferThatMatchesPredicate(offer -> !offer.isBuy() && offer.isMarginCheck()).get(), latestOffers.getInstaSell());
+		assertEquals(96, latestOffers.getBuy().getPrice());
+		assertEquals(100, latestOffers.getInstaBuy().getPrice());
+	}
+
+	@Test
+	public void offerMatchesAreLatestCompleteMatchingOffersTest()
+	{
+		HistoryManager historyManager = new HistoryManager();
+		//read the matches before adding the offers so the index is kept up to date rather than built from the history
+		assertEquals(0, historyManager.getOfferMatches(Utils.offer(true, 5, 10, baseTime, -1, GrandExchangeOfferState.BOUGHT, 5), 5).size());
+
+		historyManager.updateHistory(Utils.offer(true, 5, 10, baseTime.minus(6, ChronoUnit.MINUTES), 1, GrandExchangeOfferState.BOUGHT, 5));
+		historyManager.updateHistory(Utils.offer(false, 5, 10, baseTime.minus(5, ChronoUnit.MINUTES), 2, GrandExchangeOfferState.SOLD, 5));
+		historyManager.updateHistory(Utils.offer(true, 5, 10, baseTime.minus(4, ChronoUnit.MINUTES), 3, GrandExchangeOfferState.CANCELLED_BUY, 10));
+		historyManager.updateHistory(Utils.offer(true, 5, 11, baseTime.minus(3, ChronoUnit.MINUTES), 4, GrandExchangeOfferState.BOUGHT, 5));
+		historyManager.updateHistory(Utils.offer(true, 5, 10, baseTime.minus(2, ChronoUnit.MINUTES), 5, GrandExchangeOfferState.BUYING, 10));
+		//an older offer added from the ge history tab, which goes before the others
+		historyManager.updateHistory(Utils.offer(true, 5, 10, baseTime.minus(7, ChronoUnit.MINUTES), -1, GrandExchangeOfferState.BOUGHT, 5));
+
+		List<OfferEvent> matches = historyManager.getOfferMatches(Utils.offer(true, 5, 10, baseTime, -1, GrandExchangeOfferState.BOUGHT, 5), 5);
+		assertEquals(Arrays.asList(3, 1, -1), matches.stream().map(OfferEvent::getSlot).collect(Collectors.toList()));
+		assertEquals(2, historyManager.getOfferMatches(Utils.offer(true, 5, 10, baseTime, -1, GrandExchangeOfferState.BOUGHT, 5), 2).size());
+		assertEquals(1, historyManager.getOfferMatches(Utils.offer(false, 5, 10, baseTime, -1, GrandExchangeOfferState.SOLD, 5), 5).size());
+	}
+
+	@Test
+	public void geTabOffersAreOnlyAddedOnceTest()
+	{
+		HistoryManager historyManager = new HistoryManager();
+		//the trade came in normally too, so the top row for it is already in the history
+		historyManager.updateHistory(Utils.offer(true, 5, 10, baseTime, 1, GrandExchangeOfferState.BOUGHT, 5));
+
+		OfferEvent first = Utils.offer(true, 5, 10, baseTime, -1, GrandExchangeOfferState.BOUGHT, 5);
+		OfferEvent second = Utils.offer(true, 5, 10, baseTime.minusMillis(1), -1, GrandExchangeOfferState.BOUGHT, 5);
+		OfferEvent third = Utils.offer(true, 5, 10, baseTime.minusMillis(2), -1, GrandExchangeOfferState.BOUGHT, 5);
+		List<OfferEvent> added = historyManager.addGeTabOffers(Arrays.asList(first, second, third), Arrays.asList(0, 1, 2), null);
+		assertEquals(2, added.size());
+		assertSame(second, added.get(0));
+		assertSame(third, added.get(1));
+
+		//scraped again later, so the rows have different times but are the same trades
+		Instant later = baseTime.plus(5, ChronoUnit.MINUTES);
+		List<OfferEvent> rescraped = Arrays.asList(
+			Utils.offer(true, 5, 10, later, -1, GrandExchangeOfferState.BOUGHT, 5),
+			Utils.offer(true, 5, 10, later.minusMillis(1), -1, GrandExchangeOfferState.BOUGHT, 5),
+			Utils.offer(true, 5, 10, later.minusMillis(2), -1, GrandExchangeOfferState.BOUGHT, 5));
+		assertEquals(0, historyManager.addGeTabOffers(rescraped, Arrays.asList(0, 1, 2), null).size());
+
+		//an identical trade that was made since pushes the others down, so only one row is new
+		OfferEvent newest = Utils.offer(true, 5, 10, later.plusMillis(1), -1, GrandExchangeOfferState.BOUGHT, 5);
+		List<OfferEvent> withNewest = new ArrayList<>();
+		withNewest.add(newest);
+		withNewest.addAll(rescraped);
+		added = historyManager.addGeTabOffers(withNewest, Arrays.asList(0, 1, 2, 3), null);
+		assertEquals(1, added.size());
+		assertEquals(4, historyManager.getCompressedOfferEvents().size());
+	}
+
+	@Test
+	public void geTabOfferIsAddedWhenOnlyAnOlderIdenticalTradeExistsTest()
+	{
+		HistoryManager historyManager = new HistoryManager();
+		//bought long before the trades in the tab, so it can't be a row in it
+		historyManager.updateHistory(Utils.offer(true, 1, 100, baseTime.minus(30, ChronoUnit.DAYS), 1, GrandExchangeOfferState.BOUGHT, 1));
+		historyManager.updateHistory(Utils.offer(false, 1, 120, baseTime.minus(1, ChronoUnit.DAYS), 1, GrandExchangeOfferState.SOLD, 1));
+
+		PriorityQueue<Instant> latestOfferTimes = new PriorityQueue<>();
+		historyManager.collectLatestCompleteOfferTimes(latestOfferTimes, 1);
+		assertEquals(baseTime.minus(1, ChronoUnit.DAYS), latestOfferTimes.peek());
+
+		OfferEvent missed = Utils.offer(true, 1, 100, baseTime, -1, GrandExchangeOfferState.BOUGHT, 1);
+		List<OfferEvent> added = historyManager.addGeTabOffers(Arrays.asList(missed), Arrays.asList(0), latestOfferTimes.peek());
+		assertEquals(1, added.size());
+		assertSame(missed, added.get(0));
+
+		//once added it is in the tab's range, so selecting it again doesn't add it twice
+		OfferEvent rescraped = Utils.offer(true, 1, 100, baseTime.plusSeconds(60), -1, GrandExchangeOfferState.BOUGHT, 1);
+		assertEquals(0, historyManager.addGeTabOffers(Arrays.asList(rescraped), Arrays.asList(0), latestOfferTimes.peek()).size());
+		assertEquals(3, historyManager.getCompressedOfferEvents().size());
+	}
+
+
+	@Test
+	public void flipsMatchCreatedFlipsTest()
+	{
+		HistoryManager historyManager = new HistoryManager();
+		List<OfferEvent> offers = new ArrayList<>();
+
+		//a full margin check, a half margin check and some regular offers, including ongoing ones
+		offers.add(Utils.offer(true, 1, 2, baseTime.minus(20, ChronoUnit.MINUTES), 1, GrandExchangeOfferState.BOUGHT, 1, 1, 1));
+		offers.add(Utils.offer(false, 1, 1, baseTime.minus(20, ChronoUnit.MINUTES).plusSeconds(5), 2, GrandExchangeOfferState.SOLD, 1, 1, 1));
+		offers.add(Utils.offer(false, 1, 2, baseTime.minus(19, ChronoUnit.MINUTES), 3, GrandExchangeOfferState.SOLD, 1, 10));
+		offers.add(Utils.offer(true, 5, 1, baseTime.minus(17, ChronoUnit.MINUTES), 4, GrandExchangeOfferState.BOUGHT, 5, 5));
+		offers.add(Utils.offer(true, 1, 3, baseTime.minus(16, ChronoUnit.MINUTES), 5, GrandExchangeOfferState.BOUGHT, 1, 1, 1));
+		offers.add(Utils.offer(false, 3, 3, baseTime.minus(15, ChronoUnit.MINUTES), 6, GrandExchangeOfferState.SELLING, 5, 5));
+		offers.add(Utils.offer(true, 4, 6, baseTime.minus(14, ChronoUnit.MINUTES), 7, GrandExchangeOfferState.BUYING, 10, 5));
+		offers.add(Utils.offer(false, 1, 1, baseTime.minus(10, ChronoUnit.MINUTES), 8, GrandExchangeOfferState.SOLD, 1, 1, 1));
+		offers.add(Utils.offer(false, 5, 3, baseTime.minus(9, ChronoUnit.MINUTES), 6, GrandExchangeOfferState.SOLD, 5, 5));
+		offers.add(Utils.offer(true, 10, 7, baseTime.minus(8, ChronoUnit.MINUTES), 7, GrandExchangeOfferState.BOUGHT, 10, 5));
+		offers.add(Utils.offer(false, 8, 9, baseTime.minus(7, ChronoUnit.MINUTES), 1, GrandExchangeOfferState.SELLING, 10, 5));
+
+		for (OfferEvent offer : offers)
+		{
+			historyManager.updateHistory(offer);
+			//read the flips after every offer so the ledger is kept up to date rather than built from scratch
+			List<Flip> expectedFlips = HistoryManager.createFlips(historyManager.getCompressedOfferEvents());
+			expectedFlips.sort(Comparator.comparing(Flip::getTime));
+			Collections.reverse(expectedFlips);
+			assertEquals(expectedFlips, historyManager.getFlips(baseTime.minus(1, ChronoUnit.HOURS)));
+		}
+
+		//only flips whose sell came after the start of the interval are included
+		assertEquals(3, historyManager.getFlips(baseTime.minus(11, ChronoUnit.MINUTES)).size());
+	}
+
+	@Test
+	public void flipsMatchCreatedFlipsWithLongOpenOffersTest()
+	{
+		HistoryManager historyManager = new HistoryManager();
+		List<OfferEvent> offers = new ArrayList<>();
+
+		//an offer that stays open while other slots flip, and a margin check buy that is never sold
+		offers.add(Utils.offer(true, 2, 5, baseTime.minus(30, ChronoUnit.MINUTES), 1, GrandExchangeOfferState.BUYING, 100, 5));
+		offers.add(Utils.offer(true, 1, 9, baseTime.minus(29, ChronoUnit.MINUTES), 2, GrandExchangeOfferState.BOUGHT, 1, 1, 1));
+		for (int i = 0; i < 5; i++)
+		{
+			offers.add(Utils.offer(true, 3, 6, baseTime.minus(25 - 2 * i, ChronoUnit.MINUTES), 3, GrandExchangeOfferState.BOUGHT, 3, 5));
+			offers.add(Utils.offer(false, 3, 8, baseTime.minus(24 - 2 * i, ChronoUnit.MINUTES), 4, GrandExchangeOfferState.SOLD, 3, 5));
+		}
+		//a margin check sell that comes in late, within the window of the margin check buy
+		offers.add(Utils.offer(false, 1, 4, baseTime.minus(29, ChronoUnit.MINUTES).plusSeconds(20), 5, GrandExchangeOfferState.SOLD, 1, 1, 1));
+		offers.add(Utils.offer(true, 50, 5, baseTime.minus(10, ChronoUnit.MINUTES), 1, GrandExchangeOfferState.BUYING, 100, 5));
+
+		for (OfferEvent offer : offers)
+		{
+			historyManager.updateHistory(offer);
+			List<Flip> expectedFlips = HistoryManager.createFlips(historyManager.getCompressedOfferEvents());
+			expectedFlips.sort(Comparator.comparing(Flip::getTime));
+			Collections.reverse(expectedFlips);
+			assertEquals(expectedFlips, historyManager.getFlips(baseTime.minus(1, ChronoUnit.HOURS)));
+		}
+	}
+
+	@Test
+	public void mergedHistoryMatchesRemergedHistoryTest()
+	{
+		HistoryManager account1History = new HistoryManager();
+		HistoryManager account2History = new HistoryManager();
+		HistoryManager mergedHistory = new HistoryManager();
+		List<OfferEvent> offers = new ArrayList<>();
+
+		//both accounts have ongoing trades in the same slot, so only the offers of the account a trade belongs to
+		//should be replaced by its newer offers.
+		offers.add(Utils.offer(true, 2, 10, baseTime.minus(10, ChronoUnit.MINUTES), 1, GrandExchangeOfferState.BUYING, 10, 5));
+		offers.add(Utils.offer(true, 3, 10, baseTime.minus(9, ChronoUnit.MINUTES), 1, GrandExchangeOfferState.BUYING, 10, 5));
+		offers.add(Utils.offer(true, 6, 10, baseTime.minus(8, ChronoUnit.MINUTES), 1, GrandExchangeOfferState.BUYING, 10, 5));
+		offers.add(Utils.offer(true, 10, 10, baseTime.minus(7, ChronoUnit.MINUTES), 1, GrandExchangeOfferState.BOUGHT, 10, 5));
+		offers.add(Utils.offer(false, 4, 12, baseTime.minus(6, ChronoUnit.MINUTES), 2, GrandExchangeOfferState.SELLING, 10, 5));
+		offers.add(Utils.offer(false, 8, 12, baseTime.minus(5, ChronoUnit.MINUTES), 2, GrandExchangeOfferState.SELLING, 10, 5));
+		offers.get(1).setMadeBy("account2");
+		offers.get(2).setMadeBy("account2");
+
+		for (OfferEvent offer : offers)
+		{
+			HistoryManager accountHistory = offer.getMadeBy().equals("account2") ? account2History : account1History;
+			accountHistory.updateHistory(offer);
+			mergedHistory.updateMergedHistory(offer.clone(), accountHistory);
+
+			HistoryManager remergedHistory = account1History.clone();
+			remergedHistory.mergeHistory(account2History.clone());
+			assertEquals(remergedHistory.getCompressedOfferEvents(), mergedHistory.getCompressedOfferEvents());
+			assertEquals(accountHistory.getItemsBoughtThisLimitWindow(), mergedHistory.getItemsBoughtThisLimitWindow());
+		}
+
+		assertEquals(3, mergedHistory.getCompressedOfferEvents().size());
+	}
+
+	@Test
+	public void mergedHistoryIsTimeOrderedTest()
+	{
+		HistoryManager account1History = new HistoryManager();
+		HistoryManager account2History = new HistoryManager();
+		for (int i = 0; i < 10; i++)
+		{
+			//the accounts' offers interleave, with account2 trading every third minute
+			HistoryManager history = i % 3 == 0 ? account2History : account1History;
+			history.updateHistory(Utils.offer(i % 2 == 0, 1, i, baseTime.minus(10 - i, ChronoUnit.MINUTES), i, GrandExchangeOfferState.BOUGHT, 1));
+		}
+		MergedHistory mergedHistory = new MergedHistory(Arrays.asList(account1History, account2History));
+
+		List<Integer> prices = new ArrayList<>();
+		mergedHistory.forEach(offer -> prices.add(offer.getPrice()));
+		assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), prices);
+		assertEquals(10, mergedHistory.size());
+	}
 }
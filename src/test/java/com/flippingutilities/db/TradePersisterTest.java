@@ -0,0 +1,154 @@
+package com.flippingutilities.db;
+
+import com.flippingutilities.Utils;
+import com.flippingutilities.model.AccountData;
+import com.flippingutilities.model.AccountHeader;
+import com.flippingutilities.model.AccountState;
+import com.flippingutilities.model.OfferEvent;
+import net.runelite.api.GrandExchangeOfferState;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class TradePersisterTest
+{
+	private static final Instant baseTime = Instant.now();
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void replayJournalSkipsEntriesTheSnapshotContainsTest() throws IOException
+	{
+		File journalFile = folder.newFile("acc" + TradePersister.JOURNAL_EXTENSION);
+		writeLines(journalFile, Arrays.asList(
+			TradePersister.toJournalEntry(1, "Item", offer(1, 1)),
+			TradePersister.toJournalEntry(2, "Item", offer(2, 2)),
+			TradePersister.toJournalEntry(3, "Item", offer(3, 3)),
+			//the client died while this one was being written
+			"{\"seq\":4,\"name\":\"Ite"));
+
+		AccountData accountData = new AccountData();
+		accountData.setJournalSequence(2);
+		TradePersister.replayJournal(journalFile, "acc", accountData, null);
+
+		List<OfferEvent> offers = accountData.getTrades().get(0).getHistory().getCompressedOfferEvents();
+		assertEquals(1, offers.size());
+		assertEquals(3, offers.get(0).getSlot());
+		assertEquals(3, accountData.getJournalSequence());
+		assertEquals(1, accountData.getJournaledOffers());
+	}
+
+	@Test
+	public void replayJournalAppliesStateBeforeLaterEntriesTest() throws IOException
+	{
+		File journalFile = folder.newFile("acc" + TradePersister.JOURNAL_EXTENSION);
+		writeLines(journalFile, Arrays.asList(
+			TradePersister.toJournalEntry(1, "Item", offer(1, 1)),
+			TradePersister.toJournalEntry(2, "Item", offer(2, 2))));
+
+		//stored after the first entry was journaled, so the second entry's offer is newer than the state's
+		Map<Integer, OfferEvent> lastOffers = new HashMap<>();
+		lastOffers.put(1, offer(1, 1));
+		lastOffers.put(5, offer(5, 1));
+		AccountState state = new AccountState(1, 1, lastOffers, null, Duration.ofMinutes(3), null, null);
+
+		AccountData accountData = new AccountData();
+		TradePersister.replayJournal(journalFile, "acc", accountData, state);
+
+		assertEquals(1, accountData.getStateSequence());
+		assertEquals(Duration.ofMinutes(3), accountData.getAccumulatedSessionTime());
+		assertEquals(new HashSet<>(Arrays.asList(1, 2, 5)), accountData.getLastOffers().keySet());
+		assertEquals(2, accountData.getJournalSequence());
+	}
+
+	@Test
+	public void compactJournalKeepsEntriesAfterTheSnapshotTest() throws IOException
+	{
+		File journalFile = folder.newFile("acc" + TradePersister.JOURNAL_EXTENSION);
+		String kept = TradePersister.toJournalEntry(3, "Item", offer(3, 3));
+		writeLines(journalFile, Arrays.asList(
+			TradePersister.toJournalEntry(1, "Item", offer(1, 1)),
+			TradePersister.toJournalEntry(2, "Item", offer(2, 2)),
+			kept));
+
+		TradePersister.compactJournal(journalFile, 2);
+		assertEquals(Arrays.asList(kept), Files.readAllLines(journalFile.toPath(), StandardCharsets.UTF_8));
+
+		//nothing is left after a snapshot that contains every entry, so the journal goes
+		TradePersister.compactJournal(journalFile, 3);
+		assertFalse(journalFile.exists());
+	}
+
+	@Test
+	public void writeAtomicallyReplacesFileThroughTempFileTest() throws IOException
+	{
+		File file = folder.newFile("acc.json");
+		writeLines(file, Arrays.asList("old contents that are longer than the new ones"));
+		//left behind by a write that didn't finish
+		File tempFile = new File(folder.getRoot(), "acc.json" + TradePersister.TEMP_EXTENSION);
+		writeLines(tempFile, Arrays.asList("a half written file that is longer than the new contents"));
+
+		TradePersister.writeAtomically(file, "new".getBytes(StandardCharsets.UTF_8));
+
+		assertEquals("new", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+		assertFalse(tempFile.exists());
+	}
+
+	@Test
+	public void loadHeaderFindsHeaderWhereverItIsTest() throws IOException
+	{
+		File accountFile = new File(folder.getRoot(), "acc.json");
+		String headerJson = TradePersister.serialize(new AccountHeader(null, 0, 2, 5, null));
+		writeLines(accountFile, Arrays.asList("{\"h\":" + headerJson + ",\"lastOffers\":{},\"trades\":[]}"));
+		AccountHeader header = TradePersister.loadHeader(accountFile, "acc");
+		assertEquals(2, header.getItemCount());
+		assertEquals(5, header.getOfferCount());
+		assertEquals("acc", header.getDisplayName());
+
+		writeLines(accountFile, Arrays.asList("{\"trades\":[{\"id\":1}],\"journalSequence\":3,\"h\":{\"iC\":4,\"oC\":7}}"));
+		header = TradePersister.loadHeader(accountFile, "acc");
+		assertEquals(4, header.getItemCount());
+		assertEquals(7, header.getOfferCount());
+	}
+
+	@Test
+	public void loadHeaderOfFileWithoutHeaderIsNullTest() throws IOException
+	{
+		File accountFile = new File(folder.getRoot(), "acc.json");
+		writeLines(accountFile, Arrays.asList("{\"lastOffers\":{},\"trades\":[],\"journalSequence\":0}"));
+		assertNull(TradePersister.loadHeader(accountFile, "acc"));
+
+		writeLines(accountFile, Arrays.asList(""));
+		assertNull(TradePersister.loadHeader(accountFile, "acc"));
+
+		assertNull(TradePersister.loadHeader(new File(folder.getRoot(), "missing.json"), "missing"));
+	}
+
+	private static OfferEvent offer(int slot, int minutes)
+	{
+		return Utils.offer(true, 5, 10, baseTime.plus(minutes, ChronoUnit.MINUTES), slot, GrandExchangeOfferState.BOUGHT, 5);
+	}
+
+	private static void writeLines(File file, List<String> lines) throws IOException
+	{
+		Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,192 @@
+package com.flippingutilities.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TradeListTest
+{
+	@Test
+	public void emptyListTest()
+	{
+		TradeList trades = new TradeList();
+		assertEquals(0, trades.size());
+		assertTrue(trades.isEmpty());
+		assertFalse(trades.iterator().hasNext());
+		assertFalse(trades.listIterator(0).hasPrevious());
+		assertEquals(Optional.empty(), trades.findItem(1));
+		assertFalse(trades.remove(item(1)));
+		assertFalse(trades.contains(item(1)));
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void moveToFrontOfItemNotInListTest()
+	{
+		TradeList trades = new TradeList(Collections.singletonList(item(1)));
+		trades.moveToFront(item(1));
+	}
+
+	@Test
+	public void moveToFrontTest()
+	{
+		FlippingItem first = item(1);
+		FlippingItem second = item(2);
+		FlippingItem third = item(3);
+		TradeList trades = new TradeList(Arrays.asList(first, second, third));
+
+		trades.moveToFront(third);
+		assertEquals(Arrays.asList(third, first, second), new ArrayList<>(trades));
+
+		//already at the front
+		trades.moveToFront(third);
+		assertEquals(Arrays.asList(third, first, second), new ArrayList<>(trades));
+
+		trades.moveToFront(second);
+		assertEquals(Arrays.asList(second, third, first), new ArrayList<>(trades));
+		assertEquals(3, trades.size());
+		assertSame(first, trades.findItem(1).get());
+		assertSame(second, trades.findItem(2).get());
+		assertSame(third, trades.findItem(3).get());
+	}
+
+	@Test
+	public void findItemAfterRemovalTest()
+	{
+		FlippingItem first = item(1);
+		FlippingItem second = item(2);
+		TradeList trades = new TradeList(Arrays.asList(first, second));
+
+		assertTrue(trades.remove(first));
+		assertEquals(Optional.empty(), trades.findItem(1));
+		assertFalse(trades.contains(first));
+		assertSame(second, trades.findItem(2).get());
+
+		trades.clear();
+		assertEquals(Optional.empty(), trades.findItem(2));
+		assertEquals(0, trades.size());
+	}
+
+	@Test
+	public void duplicateItemIdsTest()
+	{
+		FlippingItem first = item(1);
+		FlippingItem other = item(2);
+		FlippingItem duplicate = item(1);
+		TradeList trades = new TradeList(Arrays.asList(first, other, duplicate));
+
+		//the one closest to the front is found, same as going through the list
+		assertSame(first, trades.findItem(1).get());
+		assertTrue(trades.contains(duplicate));
+
+		trades.moveToFront(duplicate);
+		assertSame(duplicate, trades.findItem(1).get());
+		assertEquals(Arrays.asList(duplicate, first, other), new ArrayList<>(trades));
+
+		//the other item with the id is found once the one in front of it is gone
+		assertTrue(trades.remove(duplicate));
+		assertSame(first, trades.findItem(1).get());
+		assertTrue(trades.remove(first));
+		assertEquals(Optional.empty(), trades.findItem(1));
+		assertEquals(Collections.singletonList(other), new ArrayList<>(trades));
+	}
+
+	@Test
+	public void addingAtAnIndexKeepsIndexInStepTest()
+	{
+		FlippingItem first = item(1);
+		FlippingItem second = item(2);
+		TradeList trades = new TradeList(Arrays.asList(first, second));
+
+		FlippingItem duplicate = item(2);
+		trades.add(0, duplicate);
+		assertSame(duplicate, trades.findItem(2).get());
+
+		FlippingItem last = item(3);
+		trades.add(trades.size(), last);
+		assertEquals(Arrays.asList(duplicate, first, second, last), new ArrayList<>(trades));
+		assertSame(last, trades.findItem(3).get());
+		assertSame(second, trades.get(2));
+	}
+
+	@Test
+	public void iteratorRemoveKeepsIndexInStepTest()
+	{
+		FlippingItem first = item(1);
+		FlippingItem second = item(2);
+		FlippingItem third = item(3);
+		TradeList trades = new TradeList(Arrays.asList(first, second, third));
+
+		trades.removeIf(item -> item.getItemId() == 2);
+		assertEquals(Arrays.asList(first, third), new ArrayList<>(trades));
+		assertEquals(Optional.empty(), trades.findItem(2));
+
+		//removing while going backwards
+		ListIterator<FlippingItem> it = trades.listIterator(trades.size());
+		assertSame(third, it.previous());
+		it.remove();
+		assertEquals(1, it.nextIndex());
+		assertSame(first, it.previous());
+		assertEquals(Collections.singletonList(first), new ArrayList<>(trades));
+		assertEquals(Optional.empty(), trades.findItem(3));
+		assertEquals(1, trades.size());
+	}
+
+	@Test
+	public void iteratorSetKeepsIndexInStepTest()
+	{
+		FlippingItem first = item(1);
+		FlippingItem second = item(2);
+		TradeList trades = new TradeList(Arrays.asList(first, second));
+
+		FlippingItem replacement = item(3);
+		ListIterator<FlippingItem> it = trades.listIterator();
+		it.next();
+		it.set(replacement);
+		assertEquals(Optional.empty(), trades.findItem(1));
+		assertSame(replacement, trades.findItem(3).get());
+
+		//replaced by an item with the same id as one further back, which it's now in front of
+		FlippingItem duplicate = item(2);
+		it.set(duplicate);
+		assertSame(duplicate, trades.findItem(2).get());
+		assertEquals(Optional.empty(), trades.findItem(3));
+		assertEquals(Arrays.asList(duplicate, second), new ArrayList<>(trades));
+	}
+
+	@Test
+	public void iteratorAddKeepsIndexInStepTest()
+	{
+		FlippingItem first = item(1);
+		FlippingItem second = item(2);
+		TradeList trades = new TradeList(Arrays.asList(first, second));
+
+		ListIterator<FlippingItem> it = trades.listIterator();
+		it.next();
+		FlippingItem added = item(3);
+		it.add(added);
+		assertEquals(2, it.nextIndex());
+		assertSame(second, it.next());
+		it.add(item(1));
+
+		assertEquals(4, trades.size());
+		assertSame(added, trades.findItem(3).get());
+		//still the first item with the id, as the one added is behind it
+		assertSame(first, trades.findItem(1).get());
+		assertSame(added, trades.get(1));
+	}
+
+	private static FlippingItem item(int itemId)
+	{
+		return new FlippingItem(itemId, "Item " + itemId, 100, "acc");
+	}
+}